@@ -2,8 +2,10 @@ package dev.modig.insurance;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class InsuranceServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(InsuranceServiceApplication.class, args);
@@ -0,0 +1,31 @@
+package dev.modig.insurance.capture;
+
+import dev.modig.insurance.metrics.InsuranceMetrics.VehicleOutcome;
+import dev.modig.insurance.model.Vehicle;
+
+/**
+ * An entry in a traffic journal. Timestamps are nanoseconds since the journal was started.
+ */
+public sealed interface JournalEntry {
+
+    long offsetNanos();
+
+    /**
+     * An incoming insurance request.
+     *
+     * @param personalNumber the personal number key, or its keyed hash if the journal is hashed
+     */
+    record Request(long offsetNanos, long personalNumber) implements JournalEntry {
+    }
+
+    /**
+     * A response from the vehicle service.
+     *
+     * @param registrationNumber the registration number, or its keyed hash in hex if the journal is hashed
+     * @param vehicle        the vehicle if the outcome is {@link VehicleOutcome#OK}, otherwise {@code null}
+     * @param durationNanos  how long the call took
+     */
+    record VehicleResponse(long offsetNanos, String registrationNumber, VehicleOutcome outcome, Vehicle vehicle,
+                           long durationNanos) implements JournalEntry {
+    }
+}
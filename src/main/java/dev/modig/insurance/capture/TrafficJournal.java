@@ -0,0 +1,119 @@
+package dev.modig.insurance.capture;
+
+import dev.modig.insurance.metrics.InsuranceMetrics.VehicleOutcome;
+import dev.modig.insurance.model.Vehicle;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Binary format of traffic journals.
+ * <p>
+ * A journal starts with a header (magic, version, whether personal numbers are hashed and the wall-clock start time)
+ * followed by entries. Each entry is a type byte and a nanosecond offset, followed by a personal number key for
+ * requests, or registration number, outcome, duration and optional vehicle for vehicle responses. Optional values,
+ * including the make and model of a vehicle, are preceded by a presence flag.
+ */
+public final class TrafficJournal {
+
+    private static final int MAGIC = 0x49544A31; // ITJ1
+    private static final byte VERSION = 2;
+    private static final byte REQUEST = 1;
+    private static final byte VEHICLE_RESPONSE = 2;
+
+    /**
+     * @param hashed          whether entries hold hashed personal numbers and registration numbers
+     * @param startEpochMilli wall-clock time of offset zero
+     */
+    public record Header(boolean hashed, long startEpochMilli) {
+    }
+
+    private TrafficJournal() {
+    }
+
+    public static void writeHeader(DataOutputStream out, Header header) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeBoolean(header.hashed());
+        out.writeLong(header.startEpochMilli());
+    }
+
+    public static Header readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a traffic journal");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported traffic journal version " + version);
+        }
+        return new Header(in.readBoolean(), in.readLong());
+    }
+
+    public static void write(DataOutputStream out, JournalEntry entry) throws IOException {
+        switch (entry) {
+            case JournalEntry.Request request -> {
+                out.writeByte(REQUEST);
+                out.writeLong(request.offsetNanos());
+                out.writeLong(request.personalNumber());
+            }
+            case JournalEntry.VehicleResponse response -> {
+                out.writeByte(VEHICLE_RESPONSE);
+                out.writeLong(response.offsetNanos());
+                out.writeUTF(response.registrationNumber());
+                out.writeByte(response.outcome().ordinal());
+                out.writeLong(response.durationNanos());
+                if (response.vehicle() != null) {
+                    out.writeBoolean(true);
+                    writeNullable(out, response.vehicle().make());
+                    writeNullable(out, response.vehicle().model());
+                    out.writeInt(response.vehicle().year());
+                } else {
+                    out.writeBoolean(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the next entry, or {@code null} at the end of the journal
+     */
+    public static JournalEntry read(DataInputStream in) throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            return null;
+        }
+        try {
+            long offsetNanos = in.readLong();
+            return switch (type) {
+                case REQUEST -> new JournalEntry.Request(offsetNanos, in.readLong());
+                case VEHICLE_RESPONSE -> {
+                    String registrationNumber = in.readUTF();
+                    VehicleOutcome outcome = VehicleOutcome.values()[in.readByte()];
+                    long durationNanos = in.readLong();
+                    Vehicle vehicle = in.readBoolean()
+                            ? new Vehicle(registrationNumber, readNullable(in), readNullable(in), in.readInt())
+                            : null;
+                    yield new JournalEntry.VehicleResponse(offsetNanos, registrationNumber, outcome, vehicle,
+                            durationNanos);
+                }
+                default -> throw new IOException("Unknown journal entry type " + type);
+            };
+        } catch (EOFException e) {
+            // A journal cut short by a crash ends with a partial entry
+            return null;
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,208 @@
+package dev.modig.insurance.capture;
+
+import dev.modig.insurance.config.CaptureProperties;
+import dev.modig.insurance.metrics.InsuranceMetrics.VehicleOutcome;
+import dev.modig.insurance.model.Vehicle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Opt-in recorder of production traffic for later replay.
+ * <p>
+ * Request threads only hand entries to a lock-free {@link RingBuffer}; a background thread drains it into a
+ * {@link TrafficJournal} file. When the writer falls behind, entries are dropped and counted rather than blocking the
+ * request. When disabled, every method returns immediately.
+ * <p>
+ * With hashing enabled, personal numbers and registration numbers are replaced by an HMAC-SHA256, truncated to 64
+ * bits, under a random key that is never written. The same value always hashes the same within a run, so a journal
+ * preserves the key distribution but not the keys, and without the key the hashes cannot be inverted or compared
+ * across runs.
+ */
+@Component
+public class TrafficRecorder implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficRecorder.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final String HASH_ALGORITHM = "HmacSHA256";
+
+    private final boolean enabled;
+    private final boolean hashed;
+    private final SecretKey hashKey;
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+    private final long startNanos;
+    private final RingBuffer<JournalEntry> buffer;
+    private final LongAdder dropped = new LongAdder();
+    private final Path journal;
+    private final Thread writer;
+    private volatile boolean running;
+
+    public TrafficRecorder(CaptureProperties properties) {
+        this.enabled = properties.enabled();
+        this.hashed = properties.hashPersonalNumbers();
+        this.hashKey = enabled && hashed ? newHashKey() : null;
+        this.startNanos = System.nanoTime();
+        if (!enabled) {
+            this.buffer = null;
+            this.journal = null;
+            this.writer = null;
+            return;
+        }
+        this.buffer = new RingBuffer<>(properties.bufferSize());
+        Instant start = Instant.now();
+        this.journal = properties.directory().resolve("traffic-" + start.toEpochMilli() + ".journal");
+        DataOutputStream out = open(journal, new TrafficJournal.Header(hashed, start.toEpochMilli()));
+        this.running = true;
+        this.writer = Thread.ofPlatform().name("traffic-recorder").daemon().start(() -> drain(out));
+        log.info("Recording traffic to {}", journal);
+    }
+
+    public static TrafficRecorder disabled() {
+        return new TrafficRecorder(CaptureProperties.disabled());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records an incoming request.
+     *
+     * @param personalNumberKey the key from {@link dev.modig.insurance.model.PersonalNumbers#parse(CharSequence)}
+     */
+    public void recordRequest(long personalNumberKey) {
+        if (!enabled) {
+            return;
+        }
+        long personalNumber = hashed
+                ? hash(ByteBuffer.allocate(Long.BYTES).putLong(personalNumberKey).array())
+                : personalNumberKey;
+        offer(new JournalEntry.Request(System.nanoTime() - startNanos, personalNumber));
+    }
+
+    /**
+     * Records a vehicle service response. The registration number is hashed like personal numbers, as a plate
+     * identifies its owner.
+     *
+     * @param vehicle the vehicle if the outcome is {@link VehicleOutcome#OK}, otherwise {@code null}
+     */
+    public void recordVehicleResponse(String registrationNumber, VehicleOutcome outcome, Vehicle vehicle,
+                                      long durationNanos) {
+        if (!enabled) {
+            return;
+        }
+        String plate = hashed
+                ? Long.toHexString(hash(registrationNumber.getBytes(StandardCharsets.UTF_8)))
+                : registrationNumber;
+        offer(new JournalEntry.VehicleResponse(System.nanoTime() - startNanos, plate, outcome, vehicle,
+                durationNanos));
+    }
+
+    /**
+     * @return number of entries dropped because the buffer was full
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the journal being written, or {@code null} when disabled
+     */
+    public Path journal() {
+        return journal;
+    }
+
+    /**
+     * Stops recording, writing out everything that is buffered.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join();
+        log.info("Stopped recording traffic to {}, {} entries dropped", journal, dropped());
+    }
+
+    private void offer(JournalEntry entry) {
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain(DataOutputStream out) {
+        long lastFlush = System.nanoTime();
+        try (out) {
+            while (true) {
+                JournalEntry entry = buffer.poll();
+                if (entry != null) {
+                    TrafficJournal.write(out, entry);
+                    continue;
+                }
+                if (!running) {
+                    break;
+                }
+                if (System.nanoTime() - lastFlush > FLUSH_INTERVAL_NANOS) {
+                    out.flush();
+                    lastFlush = System.nanoTime();
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        } catch (IOException e) {
+            running = false;
+            log.error("Traffic recording to {} failed", journal, e);
+        }
+    }
+
+    private static DataOutputStream open(Path journal, TrafficJournal.Header header) {
+        try {
+            Files.createDirectories(journal.getParent());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(journal), 64 * 1024));
+            TrafficJournal.writeHeader(out, header);
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create traffic journal " + journal, e);
+        }
+    }
+
+    private long hash(byte[] value) {
+        return ByteBuffer.wrap(macs.get().doFinal(value)).getLong();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HASH_ALGORITHM);
+            mac.init(hashKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static SecretKey newHashKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return new SecretKeySpec(key, HASH_ALGORITHM);
+    }
+}
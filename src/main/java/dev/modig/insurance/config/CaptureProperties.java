@@ -0,0 +1,29 @@
+package dev.modig.insurance.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Settings for {@link dev.modig.insurance.capture.TrafficRecorder}.
+ *
+ * @param enabled              whether traffic is recorded, off by default
+ * @param directory            where journal files are written
+ * @param hashPersonalNumbers  whether personal numbers and registration numbers are replaced by a keyed hash before
+ *                             they are buffered, on unless set to false
+ * @param bufferSize           number of entries the ring buffer holds, rounded up to a power of two. Entries are
+ *                             dropped when the buffer is full
+ */
+@ConfigurationProperties(prefix = "capture")
+public record CaptureProperties(boolean enabled, Path directory, Boolean hashPersonalNumbers, int bufferSize) {
+
+    public CaptureProperties {
+        directory = directory == null ? Path.of("capture") : directory;
+        hashPersonalNumbers = hashPersonalNumbers == null || hashPersonalNumbers;
+        bufferSize = bufferSize <= 0 ? 65_536 : bufferSize;
+    }
+
+    public static CaptureProperties disabled() {
+        return new CaptureProperties(false, null, null, 0);
+    }
+}
@@ -2,11 +2,17 @@ package dev.modig.insurance.config;
 
 import org.ff4j.FF4j;
 import org.ff4j.web.FF4jDispatcherServlet;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * Registers the FF4j web console at {@code /ff4j-web-console}, unless {@code ff4j.webconsole.enabled} is false as in
+ * the {@code prod} profile.
+ */
 @Configuration
+@ConditionalOnProperty(name = "ff4j.webconsole.enabled", havingValue = "true", matchIfMissing = true)
 public class FF4JWebConsoleConfig {
 
     @Bean
@@ -8,10 +8,15 @@ import org.springframework.context.annotation.Configuration;
 public class FeatureToggleConfig {
 
     @Bean
-    public FF4j ff4j() {
+    public FF4j ff4j(PricingProperties pricing) {
         FF4j ff4j = new FF4j();
         ff4j.createFeature("DISCOUNT_CAMPAIGN");
         ff4j.getFeatureStore().enable("DISCOUNT_CAMPAIGN");
+        // Further pricing campaigns start disabled and are switched on from the web console
+        pricing.campaigns().stream()
+                .map(PricingProperties.CampaignDiscount::feature)
+                .filter(feature -> !ff4j.exist(feature))
+                .forEach(ff4j::createFeature);
         return ff4j;
     }
 }
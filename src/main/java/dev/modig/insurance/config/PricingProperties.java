@@ -0,0 +1,52 @@
+package dev.modig.insurance.config;
+
+import dev.modig.insurance.model.InsuranceType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pricing rules, compiled once at startup by {@link dev.modig.insurance.service.PricingEngine}.
+ *
+ * @param rates     monthly rate per insurance type, types not listed use {@link InsuranceType#getMonthlyCost()}
+ * @param bundles   bundle discount tiers, the highest tier a customer qualifies for is applied
+ * @param campaigns campaign discounts, applied when the campaign feature is enabled for the customer
+ * @param stacking  how the bundle discount and campaign discounts are combined
+ */
+@ConfigurationProperties(prefix = "pricing")
+public record PricingProperties(Map<InsuranceType, Integer> rates, List<BundleDiscount> bundles,
+                                List<CampaignDiscount> campaigns, Stacking stacking) {
+
+    public PricingProperties {
+        rates = rates == null ? Map.of() : Map.copyOf(rates);
+        bundles = bundles == null ? List.of() : List.copyOf(bundles);
+        campaigns = campaigns == null ? List.of() : List.copyOf(campaigns);
+        stacking = stacking == null ? Stacking.MULTIPLICATIVE : stacking;
+    }
+
+    /**
+     * @param minInsurances number of insurances needed to qualify for the tier
+     * @param percent       discount in percent
+     */
+    public record BundleDiscount(int minInsurances, double percent) {
+    }
+
+    /**
+     * @param feature feature toggle that decides who gets the campaign
+     * @param percent discount in percent
+     */
+    public record CampaignDiscount(String feature, double percent) {
+    }
+
+    public enum Stacking {
+        /**
+         * Every applicable discount is applied on top of the previous one.
+         */
+        MULTIPLICATIVE,
+        /**
+         * Only the largest applicable discount is applied.
+         */
+        BEST_ONLY
+    }
+}
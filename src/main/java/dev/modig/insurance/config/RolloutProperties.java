@@ -0,0 +1,28 @@
+package dev.modig.insurance.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+/**
+ * Percentage rollout campaigns, keyed by feature name.
+ * <p>
+ * Each campaign gets its own salt so that users are bucketed independently per feature. When no salt is configured
+ * the feature name is used.
+ *
+ * @param campaigns rollout settings per feature
+ */
+@ConfigurationProperties(prefix = "rollout")
+public record RolloutProperties(Map<String, Campaign> campaigns) {
+
+    public RolloutProperties {
+        campaigns = campaigns == null ? Map.of() : Map.copyOf(campaigns);
+    }
+
+    /**
+     * @param percentage share of users included in the rollout, 0-100 with up to two decimals
+     * @param salt       bucketing salt, defaults to the feature name
+     */
+    public record Campaign(double percentage, String salt) {
+    }
+}
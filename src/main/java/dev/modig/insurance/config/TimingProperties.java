@@ -0,0 +1,24 @@
+package dev.modig.insurance.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@link dev.modig.insurance.metrics.RequestTimings}.
+ *
+ * @param serverTiming  whether insurance responses carry a {@code Server-Timing} header
+ * @param slowThreshold requests taking at least this long have their breakdown kept, unset to keep none
+ * @param slowCapacity  number of slow requests kept, rounded up to a power of two. The oldest is replaced first
+ */
+@ConfigurationProperties(prefix = "timing")
+public record TimingProperties(boolean serverTiming, Duration slowThreshold, int slowCapacity) {
+
+    public TimingProperties {
+        slowCapacity = slowCapacity <= 0 ? 128 : slowCapacity;
+    }
+
+    public static TimingProperties disabled() {
+        return new TimingProperties(false, null, 0);
+    }
+}
@@ -0,0 +1,27 @@
+package dev.modig.insurance.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@link dev.modig.insurance.service.VehiclePrefetcher}.
+ *
+ * @param enabled          whether vehicles are prefetched at startup, off by default
+ * @param parallelism      maximum number of concurrent calls to the vehicle service
+ * @param rate             maximum number of calls to the vehicle service started per second
+ * @param readyFraction    share of registration numbers that must be resolved before the application reports ready,
+ *                         0.9 unless set
+ * @param readinessTimeout how long readiness waits for the ready fraction before giving up on it
+ */
+@ConfigurationProperties(prefix = "vehicle.prefetch")
+public record VehiclePrefetchProperties(boolean enabled, int parallelism, double rate, Double readyFraction,
+                                        Duration readinessTimeout) {
+
+    public VehiclePrefetchProperties {
+        parallelism = parallelism <= 0 ? 8 : parallelism;
+        rate = rate <= 0 ? 50 : rate;
+        readyFraction = readyFraction == null ? 0.9 : Math.min(1, Math.max(0, readyFraction));
+        readinessTimeout = readinessTimeout == null ? Duration.ofMinutes(1) : readinessTimeout;
+    }
+}
@@ -0,0 +1,31 @@
+package dev.modig.insurance.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for {@link dev.modig.insurance.repository.VehicleStore}.
+ *
+ * @param enabled        whether fetched vehicles are kept on disk, off by default
+ * @param directory      where segment files are written
+ * @param ttl            how long a stored vehicle is served without asking the vehicle service
+ * @param staleRetention how long after expiry a vehicle is still served when the vehicle service is unavailable
+ * @param segmentBytes   size at which the active segment is compacted into a new one
+ */
+@ConfigurationProperties(prefix = "vehicle.store")
+public record VehicleStoreProperties(boolean enabled, Path directory, Duration ttl, Duration staleRetention,
+                                     long segmentBytes) {
+
+    public VehicleStoreProperties {
+        directory = directory == null ? Path.of("vehicle-store") : directory;
+        ttl = ttl == null ? Duration.ofHours(24) : ttl;
+        staleRetention = staleRetention == null ? Duration.ofDays(7) : staleRetention;
+        segmentBytes = segmentBytes <= 0 ? 4 * 1024 * 1024 : segmentBytes;
+    }
+
+    public static VehicleStoreProperties disabled() {
+        return new VehicleStoreProperties(false, null, null, null, 0);
+    }
+}
@@ -0,0 +1,32 @@
+package dev.modig.insurance.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@link dev.modig.insurance.controller.WarmUpRunner}.
+ *
+ * @param enabled           whether the service warms up before reporting ready, off by default
+ * @param maxDuration       longest the warm-up runs before giving up on compilation settling
+ * @param batchSize         synthetic requests between checks of JIT compilation time
+ * @param settleThreshold   JIT compilation time per batch at or below which a batch counts as settled
+ * @param settledBatches    consecutive settled batches that end the warm-up
+ * @param measuredRequests  requests timed after the warm-up to report latency
+ * @param timeToReadyBudget JVM uptime by which the warm-up should be done, unset for no budget
+ * @param latencyBudget     p99 latency the measured requests should stay within, unset for no budget
+ * @param enforceBudgets    whether a missed budget fails startup instead of only being logged
+ */
+@ConfigurationProperties(prefix = "warmup")
+public record WarmUpProperties(boolean enabled, Duration maxDuration, int batchSize, Duration settleThreshold,
+                               int settledBatches, int measuredRequests, Duration timeToReadyBudget,
+                               Duration latencyBudget, boolean enforceBudgets) {
+
+    public WarmUpProperties {
+        maxDuration = maxDuration == null ? Duration.ofSeconds(30) : maxDuration;
+        batchSize = batchSize <= 0 ? 500 : batchSize;
+        settleThreshold = settleThreshold == null ? Duration.ofMillis(5) : settleThreshold;
+        settledBatches = settledBatches <= 0 ? 3 : settledBatches;
+        measuredRequests = measuredRequests <= 0 ? 2_000 : measuredRequests;
+    }
+}
@@ -3,7 +3,12 @@ package dev.modig.insurance.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 @Configuration
 public class WebClientConfig {
@@ -14,4 +19,22 @@ public class WebClientConfig {
                 .baseUrl(baseUrl)
                 .build();
     }
+
+    /**
+     * A vehicle client that answers every registration number in-process, without any network, for the JIT warm-up
+     * and the benchmarks.
+     */
+    public static WebClient stubbedVehicleWebClient() {
+        return WebClient.builder()
+                .exchangeFunction(request -> {
+                    String path = request.url().getPath();
+                    String registrationNumber = path.substring(path.lastIndexOf('/') + 1);
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("{\"registrationNumber\":\"" + registrationNumber
+                                    + "\",\"make\":\"Volvo\",\"model\":\"XC90\",\"year\":2020}")
+                            .build());
+                })
+                .build();
+    }
 }
@@ -1,6 +1,10 @@
 package dev.modig.insurance.controller;
 
+import dev.modig.insurance.capture.TrafficRecorder;
 import dev.modig.insurance.dto.PersonInsuranceResponse;
+import dev.modig.insurance.metrics.RequestTimings;
+import dev.modig.insurance.model.PersonalNumbers;
+import dev.modig.insurance.service.InsuranceLookup;
 import dev.modig.insurance.service.InsuranceService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -24,21 +28,28 @@ import org.springframework.web.server.ResponseStatusException;
 public class InsuranceController {
 
     private final InsuranceService insuranceService;
+    private final TrafficRecorder recorder;
+    private final RequestTimings timings;
 
     /**
      * Constructs an InsuranceController with the given InsuranceService.
      *
-     * @param service the service layer used to handle insurance logic
+     * @param service  the service layer used to handle insurance logic
+     * @param recorder records valid requests when traffic capture is enabled
+     * @param timings  receives the validation time for the per-request breakdown
      */
-    public InsuranceController(InsuranceService service) {
+    public InsuranceController(InsuranceService service, TrafficRecorder recorder, RequestTimings timings) {
         this.insuranceService = service;
+        this.recorder = recorder;
+        this.timings = timings;
     }
 
 
     /**
      * Retrieves all insurance information for a specific person based on their personal number.
      *
-     * @param personalNumber the personal number of the individual (can contain dash)
+     * @param personalNumber the 12-digit personal number of the individual (can contain dash), validated by date and
+     *                       checksum
      * @return a response entity with the insurance information or an error response
      */
     @Operation(summary = "Get all insurances for a person")
@@ -47,19 +58,22 @@ public class InsuranceController {
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = PersonInsuranceResponse.class))),
             @ApiResponse(responseCode = "404", description = "No insurance found for personal number"),
-            @ApiResponse(responseCode = "400", description = "Invalid personal number format")
+            @ApiResponse(responseCode = "400", description = "Invalid personal number format, date or checksum")
     })
     @GetMapping("/{personalNumber}")
     public ResponseEntity<?> getInsuranceInfo(@PathVariable("personalNumber") String personalNumber) {
-        String strippedPersonalNumber = personalNumber.replace("-", "");
-        if (!strippedPersonalNumber.matches("^\\d{1,12}$")) {
+        long start = System.nanoTime();
+        long personalNumberKey = PersonalNumbers.parse(personalNumber);
+        timings.recordValidation(System.nanoTime() - start);
+        if (personalNumberKey == PersonalNumbers.INVALID) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid personal number");
         }
+        recorder.recordRequest(personalNumberKey);
 
-        try {
-            return ResponseEntity.ok(insuranceService.getInsurancesFor(strippedPersonalNumber));
-        } catch (dev.modig.insurance.exception.InsuranceNotFoundException ex) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Insurance not found");
-        }
+        return switch (insuranceService.findInsurancesFor(personalNumberKey)) {
+            case InsuranceLookup.Found found -> ResponseEntity.ok(found.response());
+            case InsuranceLookup.Degraded degraded -> ResponseEntity.ok(degraded.response());
+            case InsuranceLookup.NotFound notFound -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Insurance not found");
+        };
     }
 }
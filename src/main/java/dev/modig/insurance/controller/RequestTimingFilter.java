@@ -0,0 +1,67 @@
+package dev.modig.insurance.controller;
+
+import dev.modig.insurance.metrics.RequestTiming;
+import dev.modig.insurance.metrics.RequestTimings;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * Times insurance API requests for {@link RequestTimings} and adds the {@code Server-Timing} header when enabled.
+ * <p>
+ * The header covers serialization, so the body is buffered until the breakdown is complete. Without the header the
+ * response is passed through untouched, and when timing is disabled the filter is skipped entirely. Requests are
+ * identified by their route template rather than their URI, which contains the customer's personal number.
+ */
+@Component
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH = "/api/";
+    private static final String UNMATCHED_ROUTE = "unmatched";
+
+    private final RequestTimings timings;
+
+    public RequestTimingFilter(RequestTimings timings) {
+        this.timings = timings;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !timings.isEnabled() || !request.getRequestURI().startsWith(API_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTiming timing = timings.begin();
+        if (!timings.isServerTimingHeaderEnabled()) {
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                timings.end(timing, routeOf(request), response.getStatus());
+            }
+            return;
+        }
+
+        ContentCachingResponseWrapper buffered = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, buffered);
+        } finally {
+            timings.end(timing, routeOf(request), buffered.getStatus());
+            buffered.setHeader("Server-Timing", timing.serverTimingHeader());
+            buffered.copyBodyToResponse();
+        }
+    }
+
+    private static String routeOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : UNMATCHED_ROUTE;
+    }
+}
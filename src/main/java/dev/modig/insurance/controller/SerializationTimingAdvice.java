@@ -0,0 +1,36 @@
+package dev.modig.insurance.controller;
+
+import dev.modig.insurance.metrics.RequestTimings;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Marks where serialization of an {@link InsuranceController} response starts for {@link RequestTimings}.
+ */
+@ControllerAdvice(assignableTypes = InsuranceController.class)
+public class SerializationTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    private final RequestTimings timings;
+
+    public SerializationTimingAdvice(RequestTimings timings) {
+        this.timings = timings;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return timings.isEnabled();
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        timings.markSerializationStart();
+        return body;
+    }
+}
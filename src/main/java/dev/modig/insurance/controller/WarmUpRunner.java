@@ -0,0 +1,189 @@
+package dev.modig.insurance.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.modig.insurance.capture.TrafficRecorder;
+import dev.modig.insurance.config.RolloutProperties;
+import dev.modig.insurance.config.WarmUpProperties;
+import dev.modig.insurance.config.WebClientConfig;
+import dev.modig.insurance.metrics.InsuranceMetrics;
+import dev.modig.insurance.metrics.RequestTimings;
+import dev.modig.insurance.repository.InsuranceRepository;
+import dev.modig.insurance.repository.VehicleStore;
+import dev.modig.insurance.service.InsuranceService;
+import dev.modig.insurance.service.PricingEngine;
+import dev.modig.insurance.service.RolloutEngine;
+import dev.modig.insurance.service.ToggleService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ff4j.FF4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Optional startup phase that warms up the JIT before the service reports ready.
+ * <p>
+ * Synthetic requests are driven through an {@link InsuranceController} and Jackson serialization, backed by the real
+ * repository, pricing engine and feature toggles but a vehicle client that answers in-process. The pipeline is a
+ * separate instance with its own meters and a disabled recorder, so production metrics, rollout exposure counters and
+ * the vehicle service are left untouched, while the JIT compiles the shared code. Requests run in batches until the
+ * JIT compilation time spent per batch has settled, then a measured round reports latency.
+ * <p>
+ * Requests are handed to the controller directly, so the HTTP layer in front of it is not warmed: Tomcat, the
+ * {@code DispatcherServlet}, the request timing filter, the response body advice and the Jackson message converter are
+ * still compiled on the first real requests.
+ * <p>
+ * Spring Boot reports readiness once all application runners have returned, so readiness flips after the warm-up.
+ */
+@Component
+public class WarmUpRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmUpRunner.class);
+
+    /**
+     * @param requests    synthetic requests before measuring
+     * @param settled     whether JIT compilation settled before {@code maxDuration}
+     * @param warmUp      how long the warm-up took
+     * @param timeToReady JVM uptime when the warm-up finished
+     * @param p50         median latency of the measured requests
+     * @param p99         99th percentile latency of the measured requests
+     */
+    public record Report(long requests, boolean settled, Duration warmUp, Duration timeToReady, Duration p50,
+                         Duration p99) {
+    }
+
+    private final WarmUpProperties properties;
+    private final InsuranceRepository repository;
+    private final PricingEngine pricingEngine;
+    private final FF4j ff4j;
+    private final RolloutProperties rolloutProperties;
+    private final ObjectMapper objectMapper;
+    private final InsuranceMetrics metrics;
+
+    public WarmUpRunner(WarmUpProperties properties, InsuranceRepository repository, PricingEngine pricingEngine,
+                        FF4j ff4j, RolloutProperties rolloutProperties, ObjectMapper objectMapper,
+                        InsuranceMetrics metrics) {
+        this.properties = properties;
+        this.repository = repository;
+        this.pricingEngine = pricingEngine;
+        this.ff4j = ff4j;
+        this.rolloutProperties = rolloutProperties;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.enabled()) {
+            return;
+        }
+        Report report = warmUp();
+        metrics.warmUpCompleted(report.timeToReady(), report.p50(), report.p99());
+        log.info("Warm-up {} after {} requests in {}, ready at {} uptime, p50={}ms p99={}ms",
+                report.settled() ? "settled" : "stopped unsettled", report.requests(), report.warmUp(),
+                report.timeToReady(), report.p50().toNanos() / 1e6, report.p99().toNanos() / 1e6);
+
+        List<String> missed = missedBudgets(report);
+        if (!missed.isEmpty()) {
+            String message = "Warm-up missed its budgets: " + String.join(", ", missed);
+            if (properties.enforceBudgets()) {
+                throw new IllegalStateException(message);
+            }
+            log.warn(message);
+        }
+    }
+
+    /**
+     * Runs the warm-up and the measured round.
+     */
+    public Report warmUp() {
+        InsuranceService service = new InsuranceService(repository, WebClientConfig.stubbedVehicleWebClient(),
+                new ToggleService(ff4j, new RolloutEngine(rolloutProperties)), pricingEngine,
+                new InsuranceMetrics(new SimpleMeterRegistry(), RequestTimings.disabled()), TrafficRecorder.disabled(),
+                VehicleStore.disabled(), Duration.ofSeconds(2));
+        InsuranceController controller = new InsuranceController(service, TrafficRecorder.disabled(),
+                RequestTimings.disabled());
+        List<String> inputs = inputs();
+
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean monitored = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long start = System.nanoTime();
+        long deadline = start + properties.maxDuration().toNanos();
+        long requests = 0;
+        int settledBatches = 0;
+        long compilationMillis = monitored ? jit.getTotalCompilationTime() : 0;
+
+        while (settledBatches < properties.settledBatches() && System.nanoTime() < deadline) {
+            for (int i = 0; i < properties.batchSize(); i++) {
+                handle(controller, inputs.get((int) (requests++ % inputs.size())));
+            }
+            if (monitored) {
+                long total = jit.getTotalCompilationTime();
+                boolean settled = total - compilationMillis <= properties.settleThreshold().toMillis();
+                settledBatches = settled ? settledBatches + 1 : 0;
+                compilationMillis = total;
+            }
+        }
+        Duration warmUp = Duration.ofNanos(System.nanoTime() - start);
+
+        long[] latencies = new long[properties.measuredRequests()];
+        for (int i = 0; i < latencies.length; i++) {
+            long requestStart = System.nanoTime();
+            handle(controller, inputs.get(i % inputs.size()));
+            latencies[i] = System.nanoTime() - requestStart;
+        }
+        Arrays.sort(latencies);
+
+        return new Report(requests, settledBatches >= properties.settledBatches(), warmUp,
+                Duration.ofMillis(ManagementFactory.getRuntimeMXBean().getUptime()),
+                Duration.ofNanos(latencies[latencies.length / 2]),
+                Duration.ofNanos(latencies[(int) (latencies.length * 0.99)]));
+    }
+
+    private List<String> missedBudgets(Report report) {
+        List<String> missed = new ArrayList<>();
+        if (properties.timeToReadyBudget() != null
+                && report.timeToReady().compareTo(properties.timeToReadyBudget()) > 0) {
+            missed.add("time to ready " + report.timeToReady() + " > " + properties.timeToReadyBudget());
+        }
+        if (properties.latencyBudget() != null && report.p99().compareTo(properties.latencyBudget()) > 0) {
+            missed.add("p99 " + report.p99() + " > " + properties.latencyBudget());
+        }
+        return missed;
+    }
+
+    /**
+     * Every customer in both accepted formats, plus an unknown and an invalid personal number so the not-found and
+     * validation paths are compiled too.
+     */
+    private List<String> inputs() {
+        List<String> inputs = new ArrayList<>();
+        for (String personalNumber : repository.findAll().keySet()) {
+            inputs.add(personalNumber);
+            inputs.add(personalNumber.substring(0, 8) + "-" + personalNumber.substring(8));
+        }
+        inputs.add("19900101-9992");
+        inputs.add("invalid-input");
+        return inputs;
+    }
+
+    private void handle(InsuranceController controller, String personalNumber) {
+        try {
+            objectMapper.writeValueAsBytes(controller.getInsuranceInfo(personalNumber).getBody());
+        } catch (ResponseStatusException e) {
+            // Invalid personal numbers are part of the mix
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize warm-up response", e);
+        }
+    }
+}
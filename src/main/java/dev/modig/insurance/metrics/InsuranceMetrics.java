@@ -0,0 +1,185 @@
+package dev.modig.insurance.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meters for each stage of the insurance request pipeline.
+ * <p>
+ * All meters, including one timer per tag value, are registered up front. Recording is then a field read and a
+ * {@link Timer#record(long, TimeUnit)} call, so instrumentation does not look up meters or allocate on the hot path.
+ * Durations are taken with {@link System#nanoTime()} by the caller. Stage durations are also handed to
+ * {@link RequestTimings} for the per-request breakdown.
+ */
+@Component
+public class InsuranceMetrics {
+
+    /**
+     * Outcome of a call to the vehicle service, used as the {@code outcome} tag.
+     */
+    public enum VehicleOutcome {
+        OK("ok"), NOT_FOUND("404"), SERVER_ERROR("5xx"), TIMEOUT("timeout"), ERROR("error");
+
+        private final String tag;
+
+        VehicleOutcome(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    /**
+     * Outcome of a whole insurance lookup, used as the {@code outcome} tag.
+     */
+    public enum RequestOutcome {
+        FOUND("found"), DEGRADED("degraded"), NOT_FOUND("not_found");
+
+        private final String tag;
+
+        RequestOutcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Timer repositoryLookup;
+    private final Timer toggleEvaluation;
+    private final Timer[] vehicleFetch;
+    private final Timer[] request;
+    private final Counter discountsApplied;
+    private final Counter enrichmentFallbacks;
+    private final Counter vehicleStoreHits;
+    private final Counter staleVehiclesServed;
+    private final AtomicInteger prefetchPlanned = new AtomicInteger();
+    private final AtomicInteger prefetchLoaded = new AtomicInteger();
+    private final AtomicInteger prefetchFailed = new AtomicInteger();
+    private final AtomicLong warmUpTimeToReady = new AtomicLong();
+    private final AtomicLong warmUpP50 = new AtomicLong();
+    private final AtomicLong warmUpP99 = new AtomicLong();
+    private final RequestTimings timings;
+
+    public InsuranceMetrics(MeterRegistry registry, RequestTimings timings) {
+        this.timings = timings;
+        this.repositoryLookup = timer("insurance.repository.lookup", "Insurance repository lookups")
+                .register(registry);
+        this.toggleEvaluation = timer("insurance.toggle.evaluation", "Campaign toggle evaluations")
+                .register(registry);
+
+        this.vehicleFetch = new Timer[VehicleOutcome.values().length];
+        for (VehicleOutcome outcome : VehicleOutcome.values()) {
+            vehicleFetch[outcome.ordinal()] = timer("insurance.vehicle.fetch", "Calls to the vehicle service")
+                    .tag("outcome", outcome.tag)
+                    .register(registry);
+        }
+
+        this.request = new Timer[RequestOutcome.values().length];
+        for (RequestOutcome outcome : RequestOutcome.values()) {
+            request[outcome.ordinal()] = timer("insurance.request", "Total time to look up and price insurances")
+                    .tag("outcome", outcome.tag)
+                    .register(registry);
+        }
+
+        this.discountsApplied = Counter.builder("insurance.discounts.applied")
+                .description("Responses with a discounted total cost")
+                .register(registry);
+        this.enrichmentFallbacks = Counter.builder("insurance.enrichment.fallbacks")
+                .description("Car insurances returned without vehicle details because the vehicle service failed")
+                .register(registry);
+        this.vehicleStoreHits = Counter.builder("insurance.vehicle.store.hits")
+                .description("Vehicles served from the vehicle store without calling the vehicle service")
+                .register(registry);
+        this.staleVehiclesServed = Counter.builder("insurance.vehicle.store.stale")
+                .description("Expired stored vehicles served because the vehicle service failed")
+                .register(registry);
+        Gauge.builder("insurance.vehicle.prefetch.planned", prefetchPlanned, AtomicInteger::get)
+                .description("Registration numbers to prefetch at startup")
+                .register(registry);
+        Gauge.builder("insurance.vehicle.prefetch.loaded", prefetchLoaded, AtomicInteger::get)
+                .description("Registration numbers resolved by the startup prefetch")
+                .register(registry);
+        Gauge.builder("insurance.vehicle.prefetch.failed", prefetchFailed, AtomicInteger::get)
+                .description("Registration numbers the startup prefetch could not resolve")
+                .register(registry);
+        TimeGauge.builder("insurance.warmup.time.to.ready", warmUpTimeToReady, TimeUnit.NANOSECONDS, AtomicLong::get)
+                .description("JVM uptime when the warm-up finished")
+                .register(registry);
+        TimeGauge.builder("insurance.warmup.latency", warmUpP50, TimeUnit.NANOSECONDS, AtomicLong::get)
+                .description("Latency of synthetic requests measured after the warm-up")
+                .tag("quantile", "0.5")
+                .register(registry);
+        TimeGauge.builder("insurance.warmup.latency", warmUpP99, TimeUnit.NANOSECONDS, AtomicLong::get)
+                .description("Latency of synthetic requests measured after the warm-up")
+                .tag("quantile", "0.99")
+                .register(registry);
+    }
+
+    public void recordRepositoryLookup(long nanos) {
+        repositoryLookup.record(nanos, TimeUnit.NANOSECONDS);
+        timings.recordRepositoryLookup(nanos);
+    }
+
+    public void recordToggleEvaluation(long nanos) {
+        toggleEvaluation.record(nanos, TimeUnit.NANOSECONDS);
+        timings.recordToggleEvaluation(nanos);
+    }
+
+    public void recordVehicleFetch(String registrationNumber, VehicleOutcome outcome, long nanos) {
+        vehicleFetch[outcome.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        timings.recordVehicleFetch(registrationNumber, outcome, nanos);
+    }
+
+    public void recordRequest(RequestOutcome outcome, long nanos) {
+        request[outcome.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void discountApplied() {
+        discountsApplied.increment();
+    }
+
+    public void enrichmentFallback() {
+        enrichmentFallbacks.increment();
+    }
+
+    public void vehicleStoreHit() {
+        vehicleStoreHits.increment();
+    }
+
+    public void staleVehicleServed() {
+        staleVehiclesServed.increment();
+    }
+
+    public void prefetchPlanned(int registrationNumbers) {
+        prefetchPlanned.set(registrationNumbers);
+    }
+
+    public void prefetchLoaded() {
+        prefetchLoaded.incrementAndGet();
+    }
+
+    public void prefetchFailed() {
+        prefetchFailed.incrementAndGet();
+    }
+
+    public void warmUpCompleted(Duration timeToReady, Duration p50, Duration p99) {
+        warmUpTimeToReady.set(timeToReady.toNanos());
+        warmUpP50.set(p50.toNanos());
+        warmUpP99.set(p99.toNanos());
+    }
+
+    private static Timer.Builder timer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram();
+    }
+}
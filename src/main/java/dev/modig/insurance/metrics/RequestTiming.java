@@ -0,0 +1,106 @@
+package dev.modig.insurance.metrics;
+
+import dev.modig.insurance.metrics.InsuranceMetrics.VehicleOutcome;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stage durations of a single insurance request, collected by the thread handling it.
+ * <p>
+ * Not thread-safe: every stage of a request runs on the request thread, see {@link RequestTimings}.
+ */
+public final class RequestTiming {
+
+    /**
+     * @param name        stage name, as used in the {@code Server-Timing} header
+     * @param description detail such as the registration number of a vehicle fetch, or {@code null}
+     * @param millis      duration of the stage
+     */
+    public record Stage(String name, String description, double millis) {
+    }
+
+    private final long startNanos = System.nanoTime();
+    private long validationNanos = -1;
+    private long repositoryNanos = -1;
+    private long toggleNanos;
+    private int toggleEvaluations;
+    private final List<Stage> vehicleFetches = new ArrayList<>(2);
+    private long serializationStartNanos = -1;
+    private long endNanos = -1;
+
+    void validation(long nanos) {
+        validationNanos = nanos;
+    }
+
+    void repositoryLookup(long nanos) {
+        repositoryNanos = nanos;
+    }
+
+    void toggleEvaluation(long nanos) {
+        toggleNanos += nanos;
+        toggleEvaluations++;
+    }
+
+    void vehicleFetch(String registrationNumber, VehicleOutcome outcome, long nanos) {
+        vehicleFetches.add(new Stage("vehicle", registrationNumber + " " + outcome.tag(), millis(nanos)));
+    }
+
+    void serializationStart() {
+        serializationStartNanos = System.nanoTime();
+    }
+
+    void end() {
+        endNanos = System.nanoTime();
+    }
+
+    public long totalNanos() {
+        return (endNanos < 0 ? System.nanoTime() : endNanos) - startNanos;
+    }
+
+    /**
+     * @return the stages that ran, in pipeline order, followed by the total
+     */
+    public List<Stage> stages() {
+        List<Stage> stages = new ArrayList<>(6 + vehicleFetches.size());
+        if (validationNanos >= 0) {
+            stages.add(new Stage("validation", null, millis(validationNanos)));
+        }
+        if (repositoryNanos >= 0) {
+            stages.add(new Stage("repository", null, millis(repositoryNanos)));
+        }
+        stages.addAll(vehicleFetches);
+        if (toggleEvaluations > 0) {
+            stages.add(new Stage("toggle", toggleEvaluations + " evaluations", millis(toggleNanos)));
+        }
+        if (serializationStartNanos >= 0 && endNanos >= 0) {
+            stages.add(new Stage("serialization", null, millis(endNanos - serializationStartNanos)));
+        }
+        stages.add(new Stage("total", null, millis(totalNanos())));
+        return stages;
+    }
+
+    /**
+     * @return the stages as a {@code Server-Timing} header value, e.g.
+     * {@code validation;dur=0.004, vehicle;desc="ABC123 ok";dur=12.1, total;dur=12.6}
+     */
+    public String serverTimingHeader() {
+        StringBuilder header = new StringBuilder(128);
+        for (Stage stage : stages()) {
+            if (!header.isEmpty()) {
+                header.append(", ");
+            }
+            header.append(stage.name());
+            if (stage.description() != null) {
+                header.append(";desc=\"").append(stage.description()).append('"');
+            }
+            header.append(";dur=").append(stage.millis());
+        }
+        return header.toString();
+    }
+
+    private static double millis(long nanos) {
+        // Microsecond precision keeps the header short
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
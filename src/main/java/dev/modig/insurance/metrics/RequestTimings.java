@@ -0,0 +1,142 @@
+package dev.modig.insurance.metrics;
+
+import dev.modig.insurance.config.TimingProperties;
+import dev.modig.insurance.metrics.InsuranceMetrics.VehicleOutcome;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-request latency breakdown for the {@code Server-Timing} header and slow-request sampling.
+ * <p>
+ * A request is timed between {@link #begin()} and {@link #end(RequestTiming, String, int)} on the request thread, and
+ * stages record into it through a thread-local as they complete. Requests at or above the slow threshold are kept in
+ * a bounded ring that overwrites the oldest entry. When neither the header nor sampling is configured, every method
+ * returns after reading a final field.
+ */
+@Component
+public class RequestTimings {
+
+    /**
+     * A request that took at least the slow threshold.
+     *
+     * @param route the matched route template, never the raw URI, so that personal numbers are not kept
+     */
+    public record SlowRequest(Instant timestamp, String route, int status, double totalMillis,
+                              List<RequestTiming.Stage> stages) {
+    }
+
+    private final boolean enabled;
+    private final boolean serverTimingHeader;
+    private final long slowThresholdNanos;
+    private final ThreadLocal<RequestTiming> current = new ThreadLocal<>();
+    private final AtomicReferenceArray<SlowRequest> slowRequests;
+    private final AtomicLong slowRequestCount = new AtomicLong();
+    private final int mask;
+
+    public RequestTimings(TimingProperties properties) {
+        this.serverTimingHeader = properties.serverTiming();
+        this.slowThresholdNanos = properties.slowThreshold() == null ? -1 : properties.slowThreshold().toNanos();
+        this.enabled = serverTimingHeader || slowThresholdNanos >= 0;
+        int capacity = Integer.highestOneBit(Math.max(2, properties.slowCapacity() - 1)) << 1;
+        this.slowRequests = new AtomicReferenceArray<>(slowThresholdNanos >= 0 ? capacity : 0);
+        this.mask = capacity - 1;
+    }
+
+    public static RequestTimings disabled() {
+        return new RequestTimings(TimingProperties.disabled());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isServerTimingHeaderEnabled() {
+        return serverTimingHeader;
+    }
+
+    /**
+     * Starts timing a request on the current thread.
+     */
+    public RequestTiming begin() {
+        RequestTiming timing = new RequestTiming();
+        current.set(timing);
+        return timing;
+    }
+
+    /**
+     * Stops timing a request, keeping its breakdown if it was slow.
+     */
+    public void end(RequestTiming timing, String route, int status) {
+        current.remove();
+        timing.end();
+        long total = timing.totalNanos();
+        if (slowThresholdNanos >= 0 && total >= slowThresholdNanos) {
+            SlowRequest slow = new SlowRequest(Instant.now(), route, status, total / 1_000_000.0, timing.stages());
+            slowRequests.set((int) slowRequestCount.getAndIncrement() & mask, slow);
+        }
+    }
+
+    public void recordValidation(long nanos) {
+        RequestTiming timing = current();
+        if (timing != null) {
+            timing.validation(nanos);
+        }
+    }
+
+    public void recordRepositoryLookup(long nanos) {
+        RequestTiming timing = current();
+        if (timing != null) {
+            timing.repositoryLookup(nanos);
+        }
+    }
+
+    public void recordToggleEvaluation(long nanos) {
+        RequestTiming timing = current();
+        if (timing != null) {
+            timing.toggleEvaluation(nanos);
+        }
+    }
+
+    public void recordVehicleFetch(String registrationNumber, VehicleOutcome outcome, long nanos) {
+        RequestTiming timing = current();
+        if (timing != null) {
+            timing.vehicleFetch(registrationNumber, outcome, nanos);
+        }
+    }
+
+    /**
+     * Marks the start of response serialization, which lasts until {@link #end(RequestTiming, String, int)}.
+     */
+    public void markSerializationStart() {
+        RequestTiming timing = current();
+        if (timing != null) {
+            timing.serializationStart();
+        }
+    }
+
+    /**
+     * @return kept slow requests, newest first
+     */
+    public List<SlowRequest> slowRequests() {
+        long count = slowRequestCount.get();
+        int kept = (int) Math.min(count, slowRequests.length());
+        List<SlowRequest> result = new ArrayList<>(kept);
+        for (long i = count - 1; i >= count - kept; i--) {
+            SlowRequest slow = slowRequests.get((int) i & mask);
+            // A slot may still be in the middle of being written
+            if (slow != null) {
+                result.add(slow);
+            }
+        }
+        return result;
+    }
+
+    private RequestTiming current() {
+        return enabled ? current.get() : null;
+    }
+}
@@ -0,0 +1,27 @@
+package dev.modig.insurance.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint at {@code /actuator/slowrequests} listing the breakdown of recent slow requests, see
+ * {@link RequestTimings}. Not exposed over HTTP unless added to {@code management.endpoints.web.exposure.include}.
+ */
+@Component
+@Endpoint(id = "slowrequests")
+public class SlowRequestsEndpoint {
+
+    private final RequestTimings timings;
+
+    public SlowRequestsEndpoint(RequestTimings timings) {
+        this.timings = timings;
+    }
+
+    @ReadOperation
+    public List<RequestTimings.SlowRequest> slowRequests() {
+        return timings.slowRequests();
+    }
+}
@@ -7,7 +7,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 public record CarInsurance(
 
         @Schema(description = "Monthly cost for car insurance", example = "30")
-        int monthlyCost,
+        @JsonProperty int monthlyCost,
 
         @Schema(description = "Car registration number", example = "ABC123")
         @JsonProperty String registrationNumber,
@@ -30,9 +30,8 @@ public record CarInsurance(
         return InsuranceType.CAR;
     }
 
-    @JsonProperty
     @Override
-    public int monthlyCost() {
-        return type().getMonthlyCost();
+    public CarInsurance withMonthlyCost(int monthlyCost) {
+        return new CarInsurance(monthlyCost, registrationNumber, vehicle);
     }
 }
@@ -4,7 +4,16 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 @Schema(description = "Health insurance policy")
-public record HealthInsurance() implements Insurance {
+public record HealthInsurance(
+
+        @Schema(description = "Monthly cost for health insurance", example = "20")
+        @JsonProperty int monthlyCost
+
+) implements Insurance {
+
+    public HealthInsurance() {
+        this(InsuranceType.HEALTH.getMonthlyCost());
+    }
 
     @Override
     public InsuranceType type() {
@@ -12,9 +21,7 @@ public record HealthInsurance() implements Insurance {
     }
 
     @Override
-    @JsonProperty
-    @Schema(description = "Monthly cost for health insurance", example = "20")
-    public int monthlyCost() {
-        return type().getMonthlyCost();
+    public HealthInsurance withMonthlyCost(int monthlyCost) {
+        return new HealthInsurance(monthlyCost);
     }
 }
@@ -40,4 +40,12 @@ public sealed interface Insurance permits CarInsurance, HealthInsurance, PetInsu
      */
     @Schema(description = "Monthly cost of the insurance", example = "30")
     int monthlyCost();
+
+    /**
+     * Returns a copy of this insurance with another monthly cost, used to apply the configured rates.
+     *
+     * @param monthlyCost the monthly premium in currency units
+     * @return the repriced insurance
+     */
+    Insurance withMonthlyCost(int monthlyCost);
 }
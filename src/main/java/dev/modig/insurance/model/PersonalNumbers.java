@@ -0,0 +1,115 @@
+package dev.modig.insurance.model;
+
+/**
+ * Parsing of Swedish personal numbers (personnummer) in the 12-digit form {@code YYYYMMDDNNNC}, optionally with a dash
+ * before the last four digits.
+ * <p>
+ * Personal numbers are represented as a primitive {@code long} key, which is what the repository is indexed on.
+ * Parsing is a single pass over the input that neither allocates nor throws, so it can be used on every request.
+ */
+public final class PersonalNumbers {
+
+    /**
+     * Returned by the parse methods when the input is not a valid personal number.
+     */
+    public static final long INVALID = -1;
+
+    /**
+     * Number of digits in a normalized personal number.
+     */
+    public static final int LENGTH = 12;
+
+    private static final int DASH_POSITION = 8;
+    private static final int COORDINATION_DAY_OFFSET = 60;
+
+    private PersonalNumbers() {
+    }
+
+    /**
+     * Parses and validates a personal number.
+     * <p>
+     * The date portion must be a valid date, where the day may be offset by 60 for coordination numbers
+     * (samordningsnummer), and the last digit must match the Luhn checksum of the 10-digit form.
+     *
+     * @param input the personal number, with or without a dash before the last four digits
+     * @return the personal number as a 12-digit key, or {@link #INVALID}
+     */
+    public static long parse(CharSequence input) {
+        long key = toKey(input);
+        return key != INVALID && isValidDate(key) && hasValidChecksum(key) ? key : INVALID;
+    }
+
+    /**
+     * Converts a personal number to its key without validating date or checksum.
+     *
+     * @param input the personal number, with or without a dash before the last four digits
+     * @return the personal number as a 12-digit key, or {@link #INVALID} if the input is not 12 digits
+     */
+    public static long toKey(CharSequence input) {
+        int length = input.length();
+        if (length != LENGTH && length != LENGTH + 1) {
+            return INVALID;
+        }
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (c >= '0' && c <= '9') {
+                key = key * 10 + (c - '0');
+            } else if (c != '-' || i != DASH_POSITION || length != LENGTH + 1) {
+                return INVALID;
+            }
+        }
+        return length == LENGTH + 1 && input.charAt(DASH_POSITION) != '-' ? INVALID : key;
+    }
+
+    /**
+     * Formats a key as a normalized 12-digit personal number.
+     *
+     * @param key a key returned by {@link #parse(CharSequence)}
+     * @return the personal number without dash
+     */
+    public static String format(long key) {
+        char[] digits = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + key % 10);
+            key /= 10;
+        }
+        return new String(digits);
+    }
+
+    private static boolean isValidDate(long key) {
+        int year = (int) (key / 100_000_000L);
+        int month = (int) (key / 1_000_000L % 100);
+        int day = (int) (key / 10_000L % 100);
+        if (day > COORDINATION_DAY_OFFSET) {
+            day -= COORDINATION_DAY_OFFSET;
+        }
+        return month >= 1 && month <= 12 && day >= 1 && day <= daysInMonth(year, month);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static boolean hasValidChecksum(long key) {
+        long remaining = key % 10_000_000_000L;
+        int sum = 0;
+        // Walk the 10-digit form from the check digit, doubling every second digit
+        for (int i = 0; i < 10; i++) {
+            int digit = (int) (remaining % 10);
+            remaining /= 10;
+            if (i % 2 == 1) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return sum % 10 == 0;
+    }
+}
@@ -4,7 +4,16 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 @Schema(description = "Pet insurance policy")
-public record PetInsurance() implements Insurance {
+public record PetInsurance(
+
+        @Schema(description = "Monthly cost for pet insurance", example = "10")
+        @JsonProperty int monthlyCost
+
+) implements Insurance {
+
+    public PetInsurance() {
+        this(InsuranceType.PET.getMonthlyCost());
+    }
 
     @Override
     public InsuranceType type() {
@@ -12,9 +21,7 @@ public record PetInsurance() implements Insurance {
     }
 
     @Override
-    @JsonProperty
-    @Schema(description = "Monthly cost for pet insurance", example = "10")
-    public int monthlyCost() {
-        return type().getMonthlyCost();
+    public PetInsurance withMonthlyCost(int monthlyCost) {
+        return new PetInsurance(monthlyCost);
     }
 }
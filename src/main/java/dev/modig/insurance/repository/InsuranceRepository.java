@@ -3,21 +3,28 @@ package dev.modig.insurance.repository;
 import dev.modig.insurance.model.CarInsurance;
 import dev.modig.insurance.model.HealthInsurance;
 import dev.modig.insurance.model.Insurance;
+import dev.modig.insurance.model.PersonalNumbers;
 import dev.modig.insurance.model.PetInsurance;
 import org.springframework.stereotype.Repository;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public class InsuranceRepository {
 
     private final Map<String, List<Insurance>> insuranceRegistry = new HashMap<>();
+    private final long[] sortedKeys;
+    private final List<Insurance>[] insurancesByKey;
 
     public InsuranceRepository() {
-        insuranceRegistry.put("199001011234", List.of(
+        insuranceRegistry.put("199001011239", List.of(
                 new HealthInsurance(),
                 CarInsurance.carInsurance("ABC123"),
                 CarInsurance.carInsurance("XYZ789")
@@ -27,7 +34,7 @@ public class InsuranceRepository {
                 new PetInsurance()
         ));
 
-        insuranceRegistry.put("198505055678", List.of(
+        insuranceRegistry.put("198505055676", List.of(
                 new PetInsurance()
         ));
 
@@ -42,16 +49,60 @@ public class InsuranceRepository {
                 new PetInsurance()
         ));
 
-        insuranceRegistry.put("197707078888", List.of(
+        insuranceRegistry.put("197707078882", List.of(
                 CarInsurance.carInsurance("AUD00I")
         ));
 
         insuranceRegistry.put("190101010023", List.of(
                 CarInsurance.carInsurance("UNKNOWN")
         ));
+
+        sortedKeys = insuranceRegistry.keySet().stream()
+                .mapToLong(PersonalNumbers::toKey)
+                .sorted()
+                .toArray();
+        insurancesByKey = newListArray(sortedKeys.length);
+        for (int i = 0; i < sortedKeys.length; i++) {
+            insurancesByKey[i] = insuranceRegistry.get(PersonalNumbers.format(sortedKeys[i]));
+        }
     }
 
     public Optional<List<Insurance>> findByPersonalNumber(String personalNumber) {
-        return Optional.ofNullable(insuranceRegistry.get(personalNumber.toUpperCase()));
+        return findByPersonalNumber(PersonalNumbers.toKey(personalNumber));
+    }
+
+    /**
+     * Looks up insurances by personal number key using a binary search over a sorted primitive index.
+     *
+     * @param personalNumberKey the key as returned by {@link PersonalNumbers#parse(CharSequence)}
+     * @return the insurances, or empty if the key is unknown or {@link PersonalNumbers#INVALID}
+     */
+    public Optional<List<Insurance>> findByPersonalNumber(long personalNumberKey) {
+        int index = Arrays.binarySearch(sortedKeys, personalNumberKey);
+        return index >= 0 ? Optional.of(insurancesByKey[index]) : Optional.empty();
+    }
+
+    public Map<String, List<Insurance>> findAll() {
+        return Collections.unmodifiableMap(insuranceRegistry);
+    }
+
+    /**
+     * @return every distinct registration number of a car insurance, in no particular order
+     */
+    public Set<String> findAllRegistrationNumbers() {
+        Set<String> registrationNumbers = new HashSet<>();
+        for (List<Insurance> insurances : insuranceRegistry.values()) {
+            for (Insurance insurance : insurances) {
+                if (insurance instanceof CarInsurance car) {
+                    registrationNumbers.add(car.registrationNumber());
+                }
+            }
+        }
+        return registrationNumbers;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Insurance>[] newListArray(int length) {
+        return (List<Insurance>[]) new List[length];
     }
 }
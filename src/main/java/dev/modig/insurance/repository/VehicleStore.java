@@ -0,0 +1,346 @@
+package dev.modig.insurance.repository;
+
+import dev.modig.insurance.config.VehicleStoreProperties;
+import dev.modig.insurance.model.Vehicle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Vehicles fetched from the vehicle service, kept in memory and in append-only segment files so they survive
+ * restarts.
+ * <p>
+ * Every stored vehicle is appended to the active segment as a length- and CRC-prefixed record with its expiry time.
+ * On startup all segments are read back in order, later records replacing earlier ones and a torn record at the end
+ * of a segment ending that segment. Compaction writes the live entries to a new segment and deletes the older ones;
+ * it runs on startup and whenever the active segment outgrows {@code segmentBytes}. Entries more than
+ * {@code staleRetention} past their expiry are no longer returned, and are dropped by compaction.
+ * <p>
+ * Reads never touch the disk, and storing a vehicle only updates memory and queues its record. A single background
+ * writer appends queued records, flushes after each batch and compacts, so request threads never wait for disk I/O.
+ * If the queue is full the record is skipped and the next compaction, which the writer then runs, persists the vehicle
+ * from memory instead.
+ */
+@Repository
+public class VehicleStore implements AutoCloseable {
+
+    /**
+     * @param expiresAtEpochMilli when the vehicle should be fetched again
+     */
+    public record Entry(Vehicle vehicle, long expiresAtEpochMilli) {
+
+        public boolean isFresh(long nowEpochMilli) {
+            return nowEpochMilli < expiresAtEpochMilli;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(VehicleStore.class);
+    private static final String SEGMENT_PREFIX = "vehicles-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+    private static final int WRITE_QUEUE_CAPACITY = 4096;
+    private static final Write CLOSE = new Write(null, null, null);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final Duration ttl;
+    private final Duration staleRetention;
+    private final long segmentBytes;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final BlockingQueue<Write> writes = new ArrayBlockingQueue<>(WRITE_QUEUE_CAPACITY);
+    private final Thread writer;
+    private volatile boolean compactionRequested;
+    private volatile boolean closed;
+    private DataOutputStream segment;
+    private long segmentNumber;
+    private long segmentSize;
+
+    public VehicleStore(VehicleStoreProperties properties) {
+        this.enabled = properties.enabled();
+        this.directory = properties.directory();
+        this.ttl = properties.ttl();
+        this.staleRetention = properties.staleRetention();
+        this.segmentBytes = properties.segmentBytes();
+        if (enabled) {
+            open();
+            this.writer = Thread.ofPlatform().name("vehicle-store-writer").daemon().start(this::drain);
+        } else {
+            this.writer = null;
+        }
+    }
+
+    public static VehicleStore disabled() {
+        return new VehicleStore(VehicleStoreProperties.disabled());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the stored vehicle, fresh or within the stale retention, or {@code null} if none is stored or it is
+     * past the stale retention
+     */
+    public Entry get(String registrationNumber) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.get(registrationNumber);
+        if (entry != null && entry.expiresAtEpochMilli() + staleRetention.toMillis() < System.currentTimeMillis()) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Stores a vehicle fetched from the vehicle service, expiring after the configured TTL. The vehicle is written to
+     * disk by the background writer; a failing disk is logged and leaves the vehicle stored in memory only.
+     */
+    public void put(String registrationNumber, Vehicle vehicle) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = new Entry(vehicle, System.currentTimeMillis() + ttl.toMillis());
+        entries.put(registrationNumber, entry);
+        if (!writes.offer(new Write(registrationNumber, entry, null))) {
+            compactionRequested = true;
+        }
+    }
+
+    /**
+     * Waits until every vehicle stored so far has been written to disk.
+     */
+    public void flush() throws InterruptedException {
+        if (!enabled || closed) {
+            return;
+        }
+        CountDownLatch written = new CountDownLatch(1);
+        writes.put(new Write(null, null, written));
+        written.await();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the live entries to a new segment and deletes the older segments.
+     */
+    public void compact() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            long staleBefore = System.currentTimeMillis() - staleRetention.toMillis();
+            entries.values().removeIf(entry -> entry.expiresAtEpochMilli() < staleBefore);
+            if (segment != null) {
+                segment.close();
+            }
+            List<Path> older = segments();
+            segmentNumber++;
+            segment = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segmentPath(segmentNumber))));
+            segmentSize = 0;
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                append(entry.getKey(), entry.getValue());
+            }
+            segment.flush();
+            for (Path path : older) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Stops the background writer after it has written everything queued, and closes the active segment.
+     */
+    @Override
+    public void close() throws IOException, InterruptedException {
+        if (writer != null && !closed) {
+            closed = true;
+            writes.put(CLOSE);
+            writer.join();
+        }
+        synchronized (writeLock) {
+            if (segment != null) {
+                segment.close();
+                segment = null;
+            }
+        }
+    }
+
+    private void open() {
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segments();
+            int records = 0;
+            for (Path path : segments) {
+                records += load(path);
+            }
+            if (!segments.isEmpty()) {
+                segmentNumber = number(segments.getLast());
+            }
+            compact();
+            log.info("Opened vehicle store in {} with {} vehicles from {} records", directory, entries.size(), records);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open vehicle store in " + directory, e);
+        }
+    }
+
+    private void drain() {
+        List<Write> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(writes.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            writes.drainTo(batch);
+            synchronized (writeLock) {
+                try {
+                    for (Write write : batch) {
+                        if (write.entry() != null) {
+                            append(write.registrationNumber(), write.entry());
+                        }
+                    }
+                    segment.flush();
+                    if (segmentSize > segmentBytes || compactionRequested) {
+                        compactionRequested = false;
+                        compact();
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not persist {} vehicles: {}", batch.size(), e.toString());
+                }
+            }
+            for (Write write : batch) {
+                if (write.written() != null) {
+                    write.written().countDown();
+                }
+            }
+            if (batch.contains(CLOSE)) {
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    private int load(Path path) throws IOException {
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return records;
+                }
+                if (length < 0 || length > MAX_RECORD_BYTES) {
+                    log.warn("Ignoring the rest of {} after a corrupt record", path);
+                    return records;
+                }
+                byte[] payload = new byte[length];
+                int checksum;
+                try {
+                    checksum = in.readInt();
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    log.warn("Ignoring torn record at the end of {}", path);
+                    return records;
+                }
+                if (checksum != crc(payload)) {
+                    log.warn("Ignoring the rest of {} after a corrupt record", path);
+                    return records;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                long expiresAt = record.readLong();
+                String registrationNumber = record.readUTF();
+                Vehicle vehicle = new Vehicle(registrationNumber, readNullable(record), readNullable(record),
+                        record.readInt());
+                entries.put(registrationNumber, new Entry(vehicle, expiresAt));
+                records++;
+            }
+        }
+    }
+
+    private void append(String registrationNumber, Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeLong(entry.expiresAtEpochMilli());
+        record.writeUTF(registrationNumber);
+        writeNullable(record, entry.vehicle().make());
+        writeNullable(record, entry.vehicle().model());
+        record.writeInt(entry.vehicle().year());
+        byte[] payload = bytes.toByteArray();
+
+        segment.writeInt(payload.length);
+        segment.writeInt(crc(payload));
+        segment.write(payload);
+        segmentSize += 8 + payload.length;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparingLong(VehicleStore::number))
+                    .toList());
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private static long number(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Work for the background writer: a vehicle to append, or a latch to count down once everything queued before it
+     * has been written.
+     */
+    private record Write(String registrationNumber, Entry entry, CountDownLatch written) {
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
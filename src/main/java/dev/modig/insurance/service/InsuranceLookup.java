@@ -0,0 +1,32 @@
+package dev.modig.insurance.service;
+
+import dev.modig.insurance.dto.PersonInsuranceResponse;
+
+/**
+ * Outcome of looking up the insurances of a person.
+ * <p>
+ * Not found is an expected outcome and is returned as a value rather than thrown, so that 404 traffic does not pay
+ * for exception creation and stack traces.
+ */
+public sealed interface InsuranceLookup {
+
+    NotFound NOT_FOUND = new NotFound();
+
+    /**
+     * All insurances were found and every car insurance was enriched as far as the vehicle service allowed.
+     */
+    record Found(PersonInsuranceResponse response) implements InsuranceLookup {
+    }
+
+    /**
+     * Insurances were found, but the vehicle service could not be reached for at least one car insurance.
+     */
+    record Degraded(PersonInsuranceResponse response) implements InsuranceLookup {
+    }
+
+    /**
+     * The person has no insurances.
+     */
+    record NotFound() implements InsuranceLookup {
+    }
+}
@@ -1,20 +1,30 @@
 package dev.modig.insurance.service;
 
+import dev.modig.insurance.capture.TrafficRecorder;
 import dev.modig.insurance.dto.PersonInsuranceResponse;
 import dev.modig.insurance.exception.InsuranceNotFoundException;
-import dev.modig.insurance.exception.VehicleNotFoundException;
+import dev.modig.insurance.metrics.InsuranceMetrics;
 import dev.modig.insurance.model.CarInsurance;
 import dev.modig.insurance.model.Insurance;
+import dev.modig.insurance.model.PersonalNumbers;
 import dev.modig.insurance.model.Vehicle;
 import dev.modig.insurance.repository.InsuranceRepository;
+import dev.modig.insurance.repository.VehicleStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpStatusCode;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class InsuranceService {
@@ -23,11 +33,32 @@ public class InsuranceService {
     private final InsuranceRepository repository;
     private final WebClient vehicleWebClient;
     private final ToggleService toggleService;
+    private final PricingEngine pricingEngine;
+    private final PricingEngine.CampaignEligibility campaignEligibility;
+    private final InsuranceMetrics metrics;
+    private final TrafficRecorder recorder;
+    private final VehicleStore vehicleStore;
+    private final Duration vehicleTimeout;
 
-    public InsuranceService(InsuranceRepository repository, WebClient vehicleWebClient, ToggleService toggleService) {
+    public InsuranceService(InsuranceRepository repository, WebClient vehicleWebClient, ToggleService toggleService,
+                            PricingEngine pricingEngine, InsuranceMetrics metrics, TrafficRecorder recorder,
+                            VehicleStore vehicleStore, @Value("${vehicle.service.timeout:2s}") Duration vehicleTimeout) {
         this.repository = repository;
         this.vehicleWebClient = vehicleWebClient;
         this.toggleService = toggleService;
+        this.pricingEngine = pricingEngine;
+        this.metrics = metrics;
+        this.recorder = recorder;
+        this.vehicleStore = vehicleStore;
+        this.vehicleTimeout = vehicleTimeout;
+        this.campaignEligibility = (feature, personalNumber) -> {
+            long start = System.nanoTime();
+            try {
+                return toggleService.isEnabledFor(feature, personalNumber);
+            } finally {
+                metrics.recordToggleEvaluation(System.nanoTime() - start);
+            }
+        };
     }
 
     /**
@@ -36,58 +67,173 @@ public class InsuranceService {
      * This method:
      * <ul>
      *   <li>Fetches raw insurance data from the repository</li>
-     *   <li>Enriches car insurances with vehicle details via WebClient</li>
-     *   <li>Calculates total monthly cost of all insurances</li>
-     *   <li>Applies a discount if the user is eligible via ToggleService</li>
+     *   <li>Enriches car insurances with vehicle details from the {@link VehicleStore} or via WebClient</li>
+     *   <li>Applies the configured rates to every insurance</li>
+     *   <li>Calculates total monthly cost of all insurances via PricingEngine</li>
+     *   <li>Applies bundle and campaign discounts the user is eligible for</li>
      * </ul>
      *
      * @param personalNumber a 12-digit Swedish personal number (YYYYMMDDNNNN)
      * @return a response object containing all enriched insurances and calculated costs
      * @throws InsuranceNotFoundException if no insurances are found
+     * @see #findInsurancesFor(String) for the exception-free variant used on the request path
      */
     public PersonInsuranceResponse getInsurancesFor(String personalNumber) {
-        List<Insurance> rawInsurances = repository.findByPersonalNumber(personalNumber)
-                .filter(list -> !list.isEmpty())
-                .orElseThrow(() -> new InsuranceNotFoundException(personalNumber));
-
-        List<Insurance> enriched = rawInsurances.stream()
-                .map(this::enrichIfCarInsurance)
-                .toList();
+        return switch (findInsurancesFor(personalNumber)) {
+            case InsuranceLookup.Found found -> found.response();
+            case InsuranceLookup.Degraded degraded -> degraded.response();
+            case InsuranceLookup.NotFound notFound -> throw new InsuranceNotFoundException(personalNumber);
+        };
+    }
 
-        int totalCost = enriched.stream()
-                .mapToInt(Insurance::monthlyCost)
-                .sum();
+    /**
+     * Retrieves and processes all insurances for a given personal number, see {@link #getInsurancesFor(String)}.
+     * <p>
+     * Neither a missing person nor a failing vehicle lookup throws. A missing person gives
+     * {@link InsuranceLookup#NOT_FOUND} and vehicle service failures give {@link InsuranceLookup.Degraded}.
+     *
+     * @param personalNumber a 12-digit Swedish personal number (YYYYMMDDNNNN)
+     * @return the outcome of the lookup
+     */
+    public InsuranceLookup findInsurancesFor(String personalNumber) {
+        long start = System.nanoTime();
+        List<Insurance> rawInsurances = repository.findByPersonalNumber(personalNumber).orElse(List.of());
+        metrics.recordRepositoryLookup(System.nanoTime() - start);
+        if (rawInsurances.isEmpty()) {
+            return notFound(start);
+        }
+        return enrichAndPrice(personalNumber, rawInsurances, start);
+    }
 
-        Integer discountedTotal = null;
-        if (toggleService.isDiscountEnabledFor(personalNumber)) {
-            discountedTotal = (int) Math.round(totalCost * 0.9);
+    /**
+     * Retrieves and processes all insurances for a personal number that has already been parsed, see
+     * {@link #findInsurancesFor(String)}. The repository is searched on the key directly, and the normalized personal
+     * number for the response is only formatted once insurances have been found.
+     *
+     * @param personalNumberKey a key as returned by {@link PersonalNumbers#parse(CharSequence)}
+     * @return the outcome of the lookup
+     */
+    public InsuranceLookup findInsurancesFor(long personalNumberKey) {
+        long start = System.nanoTime();
+        List<Insurance> rawInsurances = repository.findByPersonalNumber(personalNumberKey).orElse(List.of());
+        metrics.recordRepositoryLookup(System.nanoTime() - start);
+        if (rawInsurances.isEmpty()) {
+            return notFound(start);
         }
+        return enrichAndPrice(PersonalNumbers.format(personalNumberKey), rawInsurances, start);
+    }
 
-        return new PersonInsuranceResponse(personalNumber, enriched, totalCost, discountedTotal);
+    private InsuranceLookup notFound(long start) {
+        metrics.recordRequest(InsuranceMetrics.RequestOutcome.NOT_FOUND, System.nanoTime() - start);
+        return InsuranceLookup.NOT_FOUND;
     }
 
-    private Insurance enrichIfCarInsurance(Insurance insurance) {
-        if (insurance instanceof CarInsurance car) {
-            try {
-                Vehicle vehicle = fetchVehicleFor(car.registrationNumber());
-                return new CarInsurance(car.registrationNumber(), vehicle);
-            } catch (Exception e) {
-                log.warn("Failed to fetch vehicle for {}: {}", car.registrationNumber(), e.getMessage());
-                return new CarInsurance(car.registrationNumber(), null);
+    private InsuranceLookup enrichAndPrice(String personalNumber, List<Insurance> rawInsurances, long start) {
+        List<Insurance> enriched = new ArrayList<>(rawInsurances.size());
+        boolean degraded = false;
+        for (Insurance insurance : rawInsurances) {
+            if (insurance instanceof CarInsurance car) {
+                VehicleLookup vehicle = lookupVehicle(car.registrationNumber());
+                if (vehicle instanceof VehicleLookup.Unavailable) {
+                    degraded = true;
+                    metrics.enrichmentFallback();
+                }
+                enriched.add(pricingEngine.rate(new CarInsurance(car.registrationNumber(), vehicle.vehicle())));
+            } else {
+                enriched.add(pricingEngine.rate(insurance));
             }
         }
-        return insurance;
+
+        PricingEngine.Quote quote = pricingEngine.price(enriched, personalNumber, campaignEligibility);
+
+        if (quote.discountedTotalCost() != null) {
+            metrics.discountApplied();
+        }
+
+        PersonInsuranceResponse response = new PersonInsuranceResponse(personalNumber,
+                Collections.unmodifiableList(enriched), quote.totalCost(), quote.discountedTotalCost());
+        if (degraded) {
+            metrics.recordRequest(InsuranceMetrics.RequestOutcome.DEGRADED, System.nanoTime() - start);
+            return new InsuranceLookup.Degraded(response);
+        }
+        metrics.recordRequest(InsuranceMetrics.RequestOutcome.FOUND, System.nanoTime() - start);
+        return new InsuranceLookup.Found(response);
+    }
+
+    /**
+     * Re-prices every customer in the repository in parallel, without vehicle enrichment.
+     * Intended to be run when pricing rules or campaign targeting change.
+     * <p>
+     * Campaign eligibility is evaluated once per feature for the whole book with
+     * {@link ToggleService#enabledAmong(String, List)}, so repricing neither counts as rollout exposure nor shows up in
+     * the per-request toggle timings.
+     *
+     * @return quotes per personal number
+     */
+    public Map<String, PricingEngine.Quote> repriceAll() {
+        Map<String, List<Insurance>> book = repository.findAll();
+        List<String> personalNumbers = List.copyOf(book.keySet());
+        Map<String, Set<String>> enabledByFeature = new ConcurrentHashMap<>();
+        return pricingEngine.priceAll(book, (feature, personalNumber) -> enabledByFeature
+                .computeIfAbsent(feature, f -> toggleService.enabledAmong(f, personalNumbers))
+                .contains(personalNumber));
+    }
+
+    /**
+     * Resolves a vehicle the way enrichment does, leaving it in the {@link VehicleStore} for later requests.
+     * Used by {@link VehiclePrefetcher}.
+     */
+    VehicleLookup prefetchVehicle(String registrationNumber) {
+        return lookupVehicle(registrationNumber);
+    }
+
+    /**
+     * Serves fresh vehicles from the {@link VehicleStore}, otherwise asks the vehicle service and stores what it
+     * returns. If the vehicle service is unavailable, the last stored vehicle is served even if it has expired, as long as
+     * it is within the store's stale retention.
+     */
+    private VehicleLookup lookupVehicle(String registrationNumber) {
+        VehicleStore.Entry stored = vehicleStore.get(registrationNumber);
+        if (stored != null && stored.isFresh(System.currentTimeMillis())) {
+            metrics.vehicleStoreHit();
+            return new VehicleLookup.Found(stored.vehicle());
+        }
+        VehicleLookup fetched = fetchVehicleFor(registrationNumber);
+        if (fetched instanceof VehicleLookup.Found found) {
+            vehicleStore.put(registrationNumber, found.vehicle());
+        } else if (fetched instanceof VehicleLookup.Unavailable && stored != null) {
+            metrics.staleVehicleServed();
+            return new VehicleLookup.Found(stored.vehicle());
+        }
+        return fetched;
     }
 
-    private Vehicle fetchVehicleFor(String registrationNumber) {
-        return vehicleWebClient.get()
+    private VehicleLookup fetchVehicleFor(String registrationNumber) {
+        long start = System.nanoTime();
+        VehicleLookup lookup = vehicleWebClient.get()
                 .uri("/{registrationNumber}", registrationNumber)
-                .retrieve()
-                .onStatus(HttpStatusCode::is4xxClientError,
-                        response -> Mono.error(new VehicleNotFoundException("Vehicle not found")))
-                .onStatus(HttpStatusCode::is5xxServerError,
-                        response -> Mono.error(new RuntimeException("Vehicle service down")))
-                .bodyToMono(Vehicle.class)
+                .exchangeToMono(response -> {
+                    if (response.statusCode().is2xxSuccessful()) {
+                        return response.bodyToMono(Vehicle.class)
+                                .<VehicleLookup>map(VehicleLookup.Found::new)
+                                .defaultIfEmpty(VehicleLookup.NOT_FOUND);
+                    }
+                    if (response.statusCode().is4xxClientError()) {
+                        log.debug("Vehicle not found for {}", registrationNumber);
+                        return response.releaseBody().<VehicleLookup>thenReturn(VehicleLookup.NOT_FOUND);
+                    }
+                    log.warn("Vehicle service responded {} for {}", response.statusCode().value(), registrationNumber);
+                    return response.releaseBody().<VehicleLookup>thenReturn(VehicleLookup.SERVER_ERROR);
+                })
+                .timeout(vehicleTimeout)
+                .onErrorResume(e -> {
+                    log.warn("Failed to fetch vehicle for {}: {}", registrationNumber, e.toString());
+                    return Mono.just(e instanceof TimeoutException ? VehicleLookup.TIMEOUT : VehicleLookup.ERROR);
+                })
                 .block();
+        long duration = System.nanoTime() - start;
+        metrics.recordVehicleFetch(registrationNumber, lookup.outcome(), duration);
+        recorder.recordVehicleResponse(registrationNumber, lookup.outcome(), lookup.vehicle(), duration);
+        return lookup;
     }
 }
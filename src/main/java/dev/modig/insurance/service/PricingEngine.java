@@ -0,0 +1,134 @@
+package dev.modig.insurance.service;
+
+import dev.modig.insurance.config.PricingProperties;
+import dev.modig.insurance.model.Insurance;
+import dev.modig.insurance.model.InsuranceType;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Prices a customer's insurances according to the configured {@link PricingProperties}.
+ * <p>
+ * The rules are compiled once into flat arrays: rates indexed by {@link InsuranceType#ordinal()}, bundle tiers sorted
+ * by size and campaign multipliers. Pricing a request is then a single pass over the insurances followed by a few
+ * multiplications, with no rule interpretation on the request path.
+ */
+@Component
+public class PricingEngine {
+
+    private final int[] rates;
+    private final int[] bundleMinInsurances;
+    private final double[] bundleMultipliers;
+    private final String[] campaignFeatures;
+    private final double[] campaignMultipliers;
+    private final boolean bestOnly;
+
+    public PricingEngine(PricingProperties properties) {
+        InsuranceType[] types = InsuranceType.values();
+        this.rates = new int[types.length];
+        for (InsuranceType type : types) {
+            rates[type.ordinal()] = properties.rates().getOrDefault(type, type.getMonthlyCost());
+        }
+
+        List<PricingProperties.BundleDiscount> bundles = properties.bundles().stream()
+                .sorted(Comparator.comparingInt(PricingProperties.BundleDiscount::minInsurances).reversed())
+                .toList();
+        this.bundleMinInsurances = new int[bundles.size()];
+        this.bundleMultipliers = new double[bundles.size()];
+        for (int i = 0; i < bundles.size(); i++) {
+            bundleMinInsurances[i] = bundles.get(i).minInsurances();
+            bundleMultipliers[i] = multiplier(bundles.get(i).percent());
+        }
+
+        List<PricingProperties.CampaignDiscount> campaigns = properties.campaigns();
+        this.campaignFeatures = new String[campaigns.size()];
+        this.campaignMultipliers = new double[campaigns.size()];
+        for (int i = 0; i < campaigns.size(); i++) {
+            campaignFeatures[i] = campaigns.get(i).feature();
+            campaignMultipliers[i] = multiplier(campaigns.get(i).percent());
+        }
+
+        this.bestOnly = properties.stacking() == PricingProperties.Stacking.BEST_ONLY;
+    }
+
+    /**
+     * Calculates the total and, if any discount applies, the discounted monthly cost.
+     *
+     * @param insurances     the customer's insurances
+     * @param personalNumber the customer, used to check campaign eligibility
+     * @param eligibility    decides whether a campaign feature is enabled for the customer
+     * @return the calculated quote
+     */
+    public Quote price(List<Insurance> insurances, String personalNumber, CampaignEligibility eligibility) {
+        int totalCost = 0;
+        for (int i = 0; i < insurances.size(); i++) {
+            totalCost += rates[insurances.get(i).type().ordinal()];
+        }
+
+        double multiplier = 1.0;
+        for (int i = 0; i < bundleMinInsurances.length; i++) {
+            if (insurances.size() >= bundleMinInsurances[i]) {
+                multiplier = bundleMultipliers[i];
+                break;
+            }
+        }
+        for (int i = 0; i < campaignFeatures.length; i++) {
+            if (eligibility.isEligible(campaignFeatures[i], personalNumber)) {
+                multiplier = bestOnly
+                        ? Math.min(multiplier, campaignMultipliers[i])
+                        : multiplier * campaignMultipliers[i];
+            }
+        }
+
+        Integer discountedTotalCost = multiplier < 1.0 ? (int) Math.round(totalCost * multiplier) : null;
+        return new Quote(totalCost, discountedTotalCost);
+    }
+
+    /**
+     * Applies the configured rate to a single insurance, so that the items of a response add up to its total.
+     *
+     * @param insurance the insurance to rate
+     * @return the insurance itself if it already has the configured rate, otherwise a copy with that rate
+     */
+    public Insurance rate(Insurance insurance) {
+        int rate = rates[insurance.type().ordinal()];
+        return insurance.monthlyCost() == rate ? insurance : insurance.withMonthlyCost(rate);
+    }
+
+    /**
+     * Re-prices a whole book of customers in parallel on the common fork-join pool, for instance after a campaign
+     * change.
+     *
+     * @param book        insurances per personal number
+     * @param eligibility decides whether a campaign feature is enabled for a customer
+     * @return quotes per personal number
+     */
+    public Map<String, Quote> priceAll(Map<String, List<Insurance>> book, CampaignEligibility eligibility) {
+        return book.entrySet().parallelStream()
+                .collect(Collectors.toConcurrentMap(Map.Entry::getKey,
+                        entry -> price(entry.getValue(), entry.getKey(), eligibility)));
+    }
+
+    private static double multiplier(double percent) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("Discount must be between 0 and 100 percent: " + percent);
+        }
+        return 1 - percent / 100;
+    }
+
+    /**
+     * @param totalCost           sum of the monthly rates
+     * @param discountedTotalCost total after discounts, or {@code null} if no discount applies
+     */
+    public record Quote(int totalCost, Integer discountedTotalCost) {
+    }
+
+    @FunctionalInterface
+    public interface CampaignEligibility {
+        boolean isEligible(String feature, String personalNumber);
+    }
+}
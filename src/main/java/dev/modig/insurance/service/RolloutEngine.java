@@ -0,0 +1,164 @@
+package dev.modig.insurance.service;
+
+import dev.modig.insurance.config.RolloutProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stable percentage rollouts for any number of features.
+ * <p>
+ * A user is placed in one of 10 000 buckets by hashing the feature salt together with the personal number using
+ * FNV-1a followed by the MurmurHash3 finalizer. The hash does not depend on {@link String#hashCode()}, so bucketing
+ * is stable across JVMs, and different salts give independent buckets per feature. A user is included when the
+ * bucket is below the configured percentage.
+ * <p>
+ * Every single-user evaluation is counted per percentile bucket so that exposure can be compared against forecasts.
+ * Bulk evaluation is intended for forecasting and is not counted.
+ */
+@Component
+public class RolloutEngine {
+
+    static final int BUCKETS = 10_000;
+    static final int EXPOSURE_BUCKETS = 100;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<String, Rollout> rollouts;
+
+    public RolloutEngine(RolloutProperties properties) {
+        Map<String, Rollout> compiled = new HashMap<>();
+        properties.campaigns().forEach((feature, campaign) -> compiled.put(feature, Rollout.of(feature, campaign)));
+        this.rollouts = Map.copyOf(compiled);
+    }
+
+    /**
+     * Checks whether a user is included in the rollout of a feature and records the exposure.
+     *
+     * @param feature        the feature name
+     * @param personalNumber the user to evaluate
+     * @return {@code true} if the user is in the rollout, {@code false} if not or if the feature has no rollout
+     */
+    public boolean isInRollout(String feature, CharSequence personalNumber) {
+        Rollout rollout = rollouts.get(feature);
+        if (rollout == null) {
+            return false;
+        }
+        int bucket = rollout.bucketOf(personalNumber);
+        rollout.exposures[bucket / (BUCKETS / EXPOSURE_BUCKETS)].increment();
+        return bucket < rollout.threshold;
+    }
+
+    /**
+     * Evaluates a feature for many users without recording exposure.
+     *
+     * @param feature         the feature name
+     * @param personalNumbers the users to evaluate
+     * @return a bit set where bit {@code i} is set if {@code personalNumbers.get(i)} is in the rollout
+     */
+    public BitSet evaluate(String feature, List<? extends CharSequence> personalNumbers) {
+        BitSet included = new BitSet(personalNumbers.size());
+        Rollout rollout = rollouts.get(feature);
+        if (rollout == null || rollout.threshold == 0) {
+            return included;
+        }
+        for (int i = 0; i < personalNumbers.size(); i++) {
+            if (rollout.bucketOf(personalNumbers.get(i)) < rollout.threshold) {
+                included.set(i);
+            }
+        }
+        return included;
+    }
+
+    /**
+     * Counts how many of the given users are included in the rollout of a feature, without recording exposure.
+     *
+     * @param feature         the feature name
+     * @param personalNumbers the users to evaluate
+     * @return number of included users
+     */
+    public long countInRollout(String feature, Iterable<? extends CharSequence> personalNumbers) {
+        Rollout rollout = rollouts.get(feature);
+        if (rollout == null || rollout.threshold == 0) {
+            return 0;
+        }
+        long count = 0;
+        for (CharSequence personalNumber : personalNumbers) {
+            if (rollout.bucketOf(personalNumber) < rollout.threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns how many evaluations each percentile bucket of a feature has served since startup.
+     *
+     * @param feature the feature name
+     * @return 100 counters where index {@code p} covers users in percentile {@code [p, p + 1)}, or an empty array if
+     * the feature has no rollout
+     */
+    public long[] exposures(String feature) {
+        Rollout rollout = rollouts.get(feature);
+        if (rollout == null) {
+            return new long[0];
+        }
+        long[] snapshot = new long[EXPOSURE_BUCKETS];
+        for (int i = 0; i < EXPOSURE_BUCKETS; i++) {
+            snapshot[i] = rollout.exposures[i].sum();
+        }
+        return snapshot;
+    }
+
+    static long hash(long seed, CharSequence key) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= FNV_PRIME;
+        }
+        return fmix64(h);
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private record Rollout(long seed, int threshold, LongAdder[] exposures) {
+
+        static Rollout of(String feature, RolloutProperties.Campaign campaign) {
+            if (campaign.percentage() < 0 || campaign.percentage() > 100) {
+                throw new IllegalArgumentException(
+                        "Rollout percentage for " + feature + " must be between 0 and 100: " + campaign.percentage());
+            }
+            String salt = campaign.salt() == null || campaign.salt().isBlank() ? feature : campaign.salt();
+            long seed = FNV_OFFSET_BASIS;
+            for (int i = 0; i < salt.length(); i++) {
+                seed ^= salt.charAt(i);
+                seed *= FNV_PRIME;
+            }
+            seed ^= ':';
+            seed *= FNV_PRIME;
+
+            LongAdder[] exposures = new LongAdder[EXPOSURE_BUCKETS];
+            for (int i = 0; i < EXPOSURE_BUCKETS; i++) {
+                exposures[i] = new LongAdder();
+            }
+            int threshold = (int) Math.round(campaign.percentage() * (BUCKETS / 100));
+            return new Rollout(seed, threshold, exposures);
+        }
+
+        int bucketOf(CharSequence personalNumber) {
+            return (int) Long.remainderUnsigned(hash(seed, personalNumber), BUCKETS);
+        }
+    }
+}
@@ -3,31 +3,70 @@ package dev.modig.insurance.service;
 import org.ff4j.FF4j;
 import org.springframework.stereotype.Service;
 
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class ToggleService {
 
-    private static final List<String> TOGGLED_USERS = List.of("199001011234", "190101010023");
+    static final String DISCOUNT_CAMPAIGN = "DISCOUNT_CAMPAIGN";
+    private static final List<String> TOGGLED_USERS = List.of("199001011239", "190101010023");
     private final FF4j ff4j;
+    private final RolloutEngine rolloutEngine;
 
-    public ToggleService(FF4j ff4j) {
+    public ToggleService(FF4j ff4j, RolloutEngine rolloutEngine) {
         this.ff4j = ff4j;
+        this.rolloutEngine = rolloutEngine;
     }
 
     /**
      * Checks whether a discount is enabled for a given personal number.
-     * Discount is enabled if the user is in a 20% canary group or explicitly toggled while the DISCOUNT_CAMPAIGN flag is active.
+     * Discount is enabled if the user is in the DISCOUNT_CAMPAIGN rollout or explicitly toggled while the
+     * DISCOUNT_CAMPAIGN flag is active.
      */
     public boolean isDiscountEnabledFor(String personalNumber) {
-        return isInCanaryGroup(personalNumber) || (ff4j.check("DISCOUNT_CAMPAIGN") && TOGGLED_USERS.contains(personalNumber));
+        return isEnabledFor(DISCOUNT_CAMPAIGN, personalNumber);
     }
 
     /**
-     * Determines if a user is part of the canary rollout group (20% hash-based).
+     * Checks whether a feature is enabled for a given personal number.
+     * The feature is enabled if the user is in its percentage rollout or explicitly toggled while its flag is active.
+     */
+    public boolean isEnabledFor(String feature, String personalNumber) {
+        return isInRollout(feature, personalNumber) || (ff4j.check(feature) && TOGGLED_USERS.contains(personalNumber));
+    }
+
+    /**
+     * Returns the users among the given ones that a feature is enabled for, by the same rules as
+     * {@link #isEnabledFor(String, String)}. Rollout exposure is not recorded, so this is meant for forecasting and
+     * bulk repricing rather than for serving requests.
+     */
+    public Set<String> enabledAmong(String feature, List<String> personalNumbers) {
+        BitSet inRollout = rolloutEngine.evaluate(feature, personalNumbers);
+        boolean flagEnabled = ff4j.check(feature);
+        Set<String> enabled = new HashSet<>();
+        for (int i = 0; i < personalNumbers.size(); i++) {
+            String personalNumber = personalNumbers.get(i);
+            if (inRollout.get(i) || (flagEnabled && TOGGLED_USERS.contains(personalNumber))) {
+                enabled.add(personalNumber);
+            }
+        }
+        return enabled;
+    }
+
+    /**
+     * Determines if a user is part of the percentage rollout of the given feature.
+     */
+    public boolean isInRollout(String feature, String personalNumber) {
+        return rolloutEngine.isInRollout(feature, personalNumber);
+    }
+
+    /**
+     * Determines if a user is part of the DISCOUNT_CAMPAIGN canary rollout group.
      */
     boolean isInCanaryGroup(String personalNumber) {
-        return Math.abs(personalNumber.hashCode() % 100) < 20;
+        return isInRollout(DISCOUNT_CAMPAIGN, personalNumber);
     }
 }
-
@@ -0,0 +1,57 @@
+package dev.modig.insurance.service;
+
+import dev.modig.insurance.metrics.InsuranceMetrics.VehicleOutcome;
+import dev.modig.insurance.model.Vehicle;
+
+/**
+ * Outcome of fetching a vehicle from the vehicle service.
+ */
+sealed interface VehicleLookup {
+
+    NotFound NOT_FOUND = new NotFound();
+    Unavailable SERVER_ERROR = new Unavailable(VehicleOutcome.SERVER_ERROR);
+    Unavailable TIMEOUT = new Unavailable(VehicleOutcome.TIMEOUT);
+    Unavailable ERROR = new Unavailable(VehicleOutcome.ERROR);
+
+    /**
+     * @return the vehicle, or {@code null} if it could not be fetched
+     */
+    Vehicle vehicle();
+
+    /**
+     * @return the outcome reported to metrics
+     */
+    VehicleOutcome outcome();
+
+    record Found(Vehicle vehicle) implements VehicleLookup {
+        @Override
+        public VehicleOutcome outcome() {
+            return VehicleOutcome.OK;
+        }
+    }
+
+    /**
+     * The vehicle service does not know the registration number.
+     */
+    record NotFound() implements VehicleLookup {
+        @Override
+        public Vehicle vehicle() {
+            return null;
+        }
+
+        @Override
+        public VehicleOutcome outcome() {
+            return VehicleOutcome.NOT_FOUND;
+        }
+    }
+
+    /**
+     * The vehicle service failed, timed out or could not be reached.
+     */
+    record Unavailable(VehicleOutcome outcome) implements VehicleLookup {
+        @Override
+        public Vehicle vehicle() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package dev.modig.insurance.service;
+
+import dev.modig.insurance.config.VehiclePrefetchProperties;
+import dev.modig.insurance.metrics.InsuranceMetrics;
+import dev.modig.insurance.repository.InsuranceRepository;
+import dev.modig.insurance.repository.VehicleStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Optional startup phase that resolves every registration number in the repository into the {@link VehicleStore}, so
+ * the first requests after a rollout are served locally.
+ * <p>
+ * Calls to the vehicle service are bounded both in concurrency and in rate. Spring Boot reports the application as
+ * ready to accept traffic once all application runners have returned, so {@link #run(ApplicationArguments)} blocks
+ * until the configured fraction of registration numbers is resolved, or the readiness timeout passes. The rest are
+ * resolved in the background. Progress is published through {@link InsuranceMetrics}.
+ */
+@Component
+public class VehiclePrefetcher implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(VehiclePrefetcher.class);
+
+    /**
+     * A running prefetch.
+     */
+    public static final class Progress {
+
+        private final int total;
+        private final AtomicInteger loaded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final CountDownLatch remaining;
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+        private Progress(int total) {
+            this.total = total;
+            this.remaining = new CountDownLatch(total);
+        }
+
+        public int total() {
+            return total;
+        }
+
+        public int loaded() {
+            return loaded.get();
+        }
+
+        public int failed() {
+            return failed.get();
+        }
+
+        public CompletableFuture<Void> finished() {
+            return finished;
+        }
+
+        /**
+         * Waits until at least {@code fraction} of the registration numbers are resolved, or it can no longer happen.
+         *
+         * @return whether the fraction was reached within the timeout
+         */
+        public boolean awaitLoaded(double fraction, Duration timeout) throws InterruptedException {
+            long required = (long) Math.ceil(fraction * total);
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (loaded.get() < required) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0 || total - failed.get() < required) {
+                    return false;
+                }
+                remaining.await(Math.min(left, TimeUnit.MILLISECONDS.toNanos(50)), TimeUnit.NANOSECONDS);
+            }
+            return true;
+        }
+    }
+
+    private final VehiclePrefetchProperties properties;
+    private final InsuranceRepository repository;
+    private final InsuranceService insuranceService;
+    private final VehicleStore vehicleStore;
+    private final InsuranceMetrics metrics;
+
+    public VehiclePrefetcher(VehiclePrefetchProperties properties, InsuranceRepository repository,
+                             InsuranceService insuranceService, VehicleStore vehicleStore, InsuranceMetrics metrics) {
+        this.properties = properties;
+        this.repository = repository;
+        this.insuranceService = insuranceService;
+        this.vehicleStore = vehicleStore;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        if (!properties.enabled()) {
+            return;
+        }
+        if (!vehicleStore.isEnabled()) {
+            log.warn("Vehicle prefetch needs vehicle.store.enabled=true to keep what it fetches, skipping");
+            return;
+        }
+        long start = System.nanoTime();
+        Progress progress = prefetch(repository.findAllRegistrationNumbers());
+        boolean ready = progress.awaitLoaded(properties.readyFraction(), properties.readinessTimeout());
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        if (ready) {
+            log.info("Prefetched {} of {} vehicles in {}, reporting ready", progress.loaded(), progress.total(),
+                    elapsed);
+        } else {
+            log.warn("Prefetched only {} of {} vehicles ({} failed) in {}, reporting ready anyway",
+                    progress.loaded(), progress.total(), progress.failed(), elapsed);
+        }
+    }
+
+    /**
+     * Starts resolving the given registration numbers in the background.
+     */
+    public Progress prefetch(Collection<String> registrationNumbers) {
+        Progress progress = new Progress(registrationNumbers.size());
+        metrics.prefetchPlanned(progress.total());
+        Semaphore permits = new Semaphore(properties.parallelism());
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / properties.rate());
+        AtomicLong nextStart = new AtomicLong(System.nanoTime());
+
+        Thread.ofVirtual().name("vehicle-prefetch").start(() -> {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (String registrationNumber : registrationNumbers) {
+                    permits.acquireUninterruptibly();
+                    long wait = nextStart.getAndAdd(intervalNanos) - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    executor.execute(() -> {
+                        try {
+                            resolve(registrationNumber, progress);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            } finally {
+                progress.finished.complete(null);
+            }
+        });
+        return progress;
+    }
+
+    private void resolve(String registrationNumber, Progress progress) {
+        boolean resolved;
+        try {
+            resolved = !(insuranceService.prefetchVehicle(registrationNumber) instanceof VehicleLookup.Unavailable);
+        } catch (RuntimeException e) {
+            log.debug("Prefetch of {} failed: {}", registrationNumber, e.toString());
+            resolved = false;
+        }
+        if (resolved) {
+            progress.loaded.incrementAndGet();
+            metrics.prefetchLoaded();
+        } else {
+            progress.failed.incrementAndGet();
+            metrics.prefetchFailed();
+        }
+        progress.remaining.countDown();
+    }
+}
@@ -0,0 +1,246 @@
+package dev.modig.insurance.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.ThreadMXBean;
+import dev.modig.insurance.capture.TrafficRecorder;
+import dev.modig.insurance.controller.InsuranceController;
+import dev.modig.insurance.metrics.RequestTimings;
+import jdk.jfr.Event;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Allocation budgets for {@code GET /api/v1/insurance/{personalNumber}}, run in-process under JFR.
+ * <p>
+ * The controller, the service with an in-process vehicle client and the Jackson write are driven on the test thread.
+ * Allocation samples are attributed to a {@link Stage} by the innermost stage method on their stack, which gives bytes
+ * and an estimate of objects per request for each stage. Objects are estimated from sample weight and object size,
+ * so their budgets leave more headroom than the byte budgets. Allocations on other threads, such as the Reactor timer
+ * behind the vehicle timeout, are not counted.
+ * <p>
+ * The stage budgets allow for sampling noise, small stages only get a few samples per run. The total is measured
+ * exactly with {@link ThreadMXBean}. Raise a budget only together with the change that needs it.
+ * <p>
+ * Tagged {@code allocation} so that it runs in the {@code integration-test} phase in a JVM of its own, which records
+ * deeper stacks, rather than with the unit tests.
+ */
+@Tag("allocation")
+class AllocationBudgetTest {
+
+    /**
+     * Stages of a request. A sample belongs to the stage of the innermost frame on its stack that is a stage method, so
+     * enrichment is not counted as part of the service regardless of the order of the constants.
+     */
+    enum Stage {
+        ENRICHMENT("dev.modig.insurance.service.InsuranceService.lookupVehicle", 38_912, 1_100),
+        SERVICE("dev.modig.insurance.service.InsuranceService.findInsurancesFor", 1_024, 32),
+        VALIDATION("dev.modig.insurance.controller.InsuranceController.getInsuranceInfo", 1_024, 32),
+        SERIALIZATION("com.fasterxml.jackson.databind.ObjectMapper.writeValue", 2_048, 48);
+
+        private final String method;
+        private final long bytesBudget;
+        private final long objectsBudget;
+
+        Stage(String method, long bytesBudget, long objectsBudget) {
+            this.method = method;
+            this.bytesBudget = bytesBudget;
+            this.objectsBudget = objectsBudget;
+        }
+
+        static Stage of(RecordedStackTrace stackTrace) {
+            if (stackTrace == null) {
+                return null;
+            }
+            for (RecordedFrame frame : stackTrace.getFrames()) {
+                String method = frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+                for (Stage stage : values()) {
+                    if (stage.method.equals(method)) {
+                        return stage;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Marks the measured requests in the recording.
+     */
+    @Name("dev.modig.insurance.MeasuredRequests")
+    static class MeasuredRequests extends Event {
+    }
+
+    private static final String PERSONAL_NUMBER = "19900101-1239";
+    private static final int WARM_UP_REQUESTS = 20_000;
+    private static final int MEASURED_REQUESTS = 20_000;
+    private static final long TOTAL_BYTES_BUDGET = 40_960;
+    private static final double MAX_UNATTRIBUTED_SHARE = 0.05;
+
+    private final InsuranceController controller = new InsuranceController(
+            BenchmarkFixtures.insuranceService(BenchmarkFixtures.stubbedVehicleWebClient()),
+            TrafficRecorder.disabled(), RequestTimings.disabled());
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void shouldStayWithinAllocationBudgets(@TempDir Path directory) throws IOException {
+        for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+            request();
+        }
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Path file = directory.resolve("allocations.jfr");
+        long totalBytes;
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.ObjectAllocationInNewTLAB").withStackTrace();
+            recording.enable("jdk.ObjectAllocationOutsideTLAB").withStackTrace();
+            recording.enable("jdk.GarbageCollection");
+            recording.enable(MeasuredRequests.class);
+            recording.start();
+
+            MeasuredRequests measured = new MeasuredRequests();
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            measured.begin();
+            for (int i = 0; i < MEASURED_REQUESTS; i++) {
+                request();
+            }
+            measured.commit();
+            totalBytes = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Report report = Report.of(RecordingFile.readAllEvents(file), Thread.currentThread().threadId());
+
+        List<String> violations = new ArrayList<>();
+        if (totalBytes / MEASURED_REQUESTS > TOTAL_BYTES_BUDGET) {
+            violations.add("total: " + totalBytes / MEASURED_REQUESTS + " bytes > " + TOTAL_BYTES_BUDGET);
+        }
+        for (Stage stage : Stage.values()) {
+            long bytes = report.bytes(stage) / MEASURED_REQUESTS;
+            long objects = Math.round(report.objects(stage) / MEASURED_REQUESTS);
+            if (bytes > stage.bytesBudget) {
+                violations.add(stage + ": " + bytes + " bytes > " + stage.bytesBudget);
+            }
+            if (objects > stage.objectsBudget) {
+                violations.add(stage + ": ~" + objects + " objects > " + stage.objectsBudget);
+            }
+        }
+        assertTrue(report.samples() > 0, "No allocation samples were recorded");
+        assertTrue(report.unattributedShare() <= MAX_UNATTRIBUTED_SHARE,
+                "Allocation samples without a stage on the stack, raise -XX:FlightRecorderOptions:stackdepth: "
+                        + report.describe(totalBytes / MEASURED_REQUESTS));
+        assertTrue(violations.isEmpty(), "Allocation budget exceeded: " + violations + "\n"
+                + report.describe(totalBytes / MEASURED_REQUESTS));
+    }
+
+    private void request() throws IOException {
+        ResponseEntity<?> response = controller.getInsuranceInfo(PERSONAL_NUMBER);
+        objectMapper.writeValue(OutputStream.nullOutputStream(), response.getBody());
+    }
+
+    /**
+     * Allocation samples of the measuring thread within the measured requests, summed per stage.
+     */
+    private record Report(Map<Stage, long[]> bytes, Map<Stage, double[]> objects, long[] unattributedBytes,
+                          int samples, int collections, Duration pauses) {
+
+        static Report of(List<RecordedEvent> events, long threadId) {
+            RecordedEvent window = events.stream()
+                    .filter(event -> event.getEventType().getName().equals("dev.modig.insurance.MeasuredRequests"))
+                    .findFirst()
+                    .orElseThrow();
+            Map<Stage, long[]> bytes = new EnumMap<>(Stage.class);
+            Map<Stage, double[]> objects = new EnumMap<>(Stage.class);
+            for (Stage stage : Stage.values()) {
+                bytes.put(stage, new long[1]);
+                objects.put(stage, new double[1]);
+            }
+            long[] unattributed = new long[1];
+            int samples = 0;
+            int collections = 0;
+            Duration pauses = Duration.ZERO;
+            for (RecordedEvent event : events) {
+                if (event.getStartTime().isBefore(window.getStartTime())
+                        || event.getStartTime().isAfter(window.getEndTime())) {
+                    continue;
+                }
+                switch (event.getEventType().getName()) {
+                    case "jdk.ObjectAllocationInNewTLAB", "jdk.ObjectAllocationOutsideTLAB" -> {
+                        if (event.getThread("eventThread") == null
+                                || event.getThread("eventThread").getJavaThreadId() != threadId) {
+                            continue;
+                        }
+                        samples++;
+                        long size = event.getLong("allocationSize");
+                        long weight = event.hasField("tlabSize") ? event.getLong("tlabSize") : size;
+                        Stage stage = Stage.of(event.getStackTrace());
+                        if (stage == null) {
+                            unattributed[0] += weight;
+                        } else {
+                            bytes.get(stage)[0] += weight;
+                            objects.get(stage)[0] += (double) weight / size;
+                        }
+                    }
+                    case "jdk.GarbageCollection" -> {
+                        collections++;
+                        pauses = pauses.plus(event.getDuration("sumOfPauses"));
+                    }
+                    default -> {
+                    }
+                }
+            }
+            return new Report(bytes, objects, unattributed, samples, collections, pauses);
+        }
+
+        long bytes(Stage stage) {
+            return bytes.get(stage)[0];
+        }
+
+        double objects(Stage stage) {
+            return objects.get(stage)[0];
+        }
+
+        double unattributedShare() {
+            long attributed = bytes.values().stream().mapToLong(sum -> sum[0]).sum();
+            return attributed + unattributedBytes[0] == 0 ? 0
+                    : (double) unattributedBytes[0] / (attributed + unattributedBytes[0]);
+        }
+
+        String describe(long totalBytesPerRequest) {
+            StringBuilder description = new StringBuilder("Allocations per request over " + MEASURED_REQUESTS
+                    + " requests (" + samples + " samples, " + collections + " GCs, " + pauses.toMillis()
+                    + " ms paused):\n");
+            description.append(String.format("  %-14s %8d bytes%n", "total", totalBytesPerRequest));
+            for (Stage stage : Stage.values()) {
+                description.append(String.format("  %-14s %8d bytes (budget %d) %6.1f objects (budget %d)%n",
+                        stage.name().toLowerCase(), bytes(stage) / MEASURED_REQUESTS, stage.bytesBudget,
+                        objects(stage) / MEASURED_REQUESTS, stage.objectsBudget));
+            }
+            description.append(String.format("  %-14s %8d bytes%n", "unattributed",
+                    unattributedBytes[0] / MEASURED_REQUESTS));
+            return description.toString();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package dev.modig.insurance.benchmark;
+
+import dev.modig.insurance.capture.TrafficRecorder;
+import dev.modig.insurance.config.PricingProperties;
+import dev.modig.insurance.config.RolloutProperties;
+import dev.modig.insurance.config.WebClientConfig;
+import dev.modig.insurance.metrics.InsuranceMetrics;
+import dev.modig.insurance.metrics.RequestTimings;
+import dev.modig.insurance.repository.InsuranceRepository;
+import dev.modig.insurance.repository.VehicleStore;
+import dev.modig.insurance.service.InsuranceService;
+import dev.modig.insurance.service.PricingEngine;
+import dev.modig.insurance.service.RolloutEngine;
+import dev.modig.insurance.service.ToggleService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ff4j.FF4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wiring shared by the benchmarks, configured like {@code application.yml} but without a Spring context.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static ToggleService toggleService() {
+        FF4j ff4j = new FF4j();
+        ff4j.createFeature("DISCOUNT_CAMPAIGN");
+        ff4j.getFeatureStore().enable("DISCOUNT_CAMPAIGN");
+        RolloutProperties rollouts = new RolloutProperties(
+                Map.of("DISCOUNT_CAMPAIGN", new RolloutProperties.Campaign(20, null)));
+        return new ToggleService(ff4j, new RolloutEngine(rollouts));
+    }
+
+    static InsuranceService insuranceService(WebClient vehicleWebClient) {
+        PricingEngine pricingEngine = new PricingEngine(new PricingProperties(null, null,
+                List.of(new PricingProperties.CampaignDiscount("DISCOUNT_CAMPAIGN", 10)), null));
+        return new InsuranceService(new InsuranceRepository(), vehicleWebClient, toggleService(), pricingEngine,
+                new InsuranceMetrics(new SimpleMeterRegistry(), RequestTimings.disabled()), TrafficRecorder.disabled(),
+                VehicleStore.disabled(), Duration.ofSeconds(2));
+    }
+
+    /**
+     * A vehicle client that answers every registration number in-process, without any network.
+     */
+    static WebClient stubbedVehicleWebClient() {
+        return WebClientConfig.stubbedVehicleWebClient();
+    }
+
+    /**
+     * A vehicle client that answers 404 for every registration number, without any network.
+     */
+    static WebClient notFoundVehicleWebClient() {
+        return WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build()))
+                .build();
+    }
+}
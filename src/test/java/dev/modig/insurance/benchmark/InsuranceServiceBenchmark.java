@@ -0,0 +1,38 @@
+package dev.modig.insurance.benchmark;
+
+import dev.modig.insurance.dto.PersonInsuranceResponse;
+import dev.modig.insurance.service.InsuranceService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InsuranceService#getInsurancesFor(String)} against an in-process vehicle client, so the numbers cover
+ * lookup, enrichment plumbing, toggles and pricing but not the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InsuranceServiceBenchmark {
+
+    /**
+     * Two car insurances, and a person without cars.
+     */
+    @Param({"199001011239", "190101010015"})
+    private String personalNumber;
+
+    private InsuranceService insuranceService;
+
+    @Setup
+    public void setUp() {
+        insuranceService = BenchmarkFixtures.insuranceService(BenchmarkFixtures.stubbedVehicleWebClient());
+    }
+
+    @Benchmark
+    public PersonInsuranceResponse getInsurancesFor() {
+        return insuranceService.getInsurancesFor(personalNumber);
+    }
+}
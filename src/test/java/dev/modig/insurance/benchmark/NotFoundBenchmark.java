@@ -0,0 +1,140 @@
+package dev.modig.insurance.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import dev.modig.insurance.exception.InsuranceNotFoundException;
+import dev.modig.insurance.model.CarInsurance;
+import dev.modig.insurance.model.Insurance;
+import dev.modig.insurance.model.Vehicle;
+import dev.modig.insurance.repository.InsuranceRepository;
+import dev.modig.insurance.service.InsuranceService;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a 404 through the service, comparing exceptions with the {@code InsuranceLookup} and {@code VehicleLookup}
+ * result paths. Run with {@code -prof gc} to compare allocation per operation.
+ * <p>
+ * The person 404 compares throwing and catching {@link InsuranceNotFoundException} with the result path. The vehicle
+ * 404 compares the enrichment that was replaced, which turned a 404 into a {@code VehicleNotFoundException} and
+ * logged a warning per car, with the service as it is now, using a vehicle client that answers 404 for everything.
+ * The replaced enrichment skips pricing, so the comparison favours it if anything.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotFoundBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(NotFoundBenchmark.class);
+    private static final String UNKNOWN_PERSONAL_NUMBER = "199001019992";
+    /**
+     * A person with one car that the vehicle service does not know.
+     */
+    private static final String UNKNOWN_VEHICLE_PERSONAL_NUMBER = "190101010023";
+
+    private InsuranceService insuranceService;
+    private InsuranceService vehicleNotFoundService;
+    private InsuranceRepository repository;
+    private WebClient notFoundVehicleWebClient;
+
+    @Setup
+    public void setUp() {
+        discardLogOutput();
+        insuranceService = BenchmarkFixtures.insuranceService(WebClient.create());
+        notFoundVehicleWebClient = BenchmarkFixtures.notFoundVehicleWebClient();
+        vehicleNotFoundService = BenchmarkFixtures.insuranceService(notFoundVehicleWebClient);
+        repository = new InsuranceRepository();
+    }
+
+    @Benchmark
+    public Object exceptionPath() {
+        try {
+            return insuranceService.getInsurancesFor(UNKNOWN_PERSONAL_NUMBER);
+        } catch (InsuranceNotFoundException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object resultPath() {
+        return insuranceService.findInsurancesFor(UNKNOWN_PERSONAL_NUMBER);
+    }
+
+    @Benchmark
+    public Object vehicleExceptionPath() {
+        List<Insurance> insurances = repository.findByPersonalNumber(UNKNOWN_VEHICLE_PERSONAL_NUMBER).orElseThrow();
+        List<Insurance> enriched = new ArrayList<>(insurances.size());
+        for (Insurance insurance : insurances) {
+            if (insurance instanceof CarInsurance car) {
+                try {
+                    enriched.add(new CarInsurance(car.registrationNumber(), fetchVehicleFor(car.registrationNumber())));
+                } catch (Exception e) {
+                    log.warn("Failed to fetch vehicle for {}: {}", car.registrationNumber(), e.getMessage());
+                    enriched.add(new CarInsurance(car.registrationNumber(), null));
+                }
+            } else {
+                enriched.add(insurance);
+            }
+        }
+        return enriched;
+    }
+
+    @Benchmark
+    public Object vehicleResultPath() {
+        return vehicleNotFoundService.findInsurancesFor(UNKNOWN_VEHICLE_PERSONAL_NUMBER);
+    }
+
+    /**
+     * The vehicle fetch before vehicle 404s became a {@code VehicleLookup}.
+     */
+    private Vehicle fetchVehicleFor(String registrationNumber) {
+        return notFoundVehicleWebClient.get()
+                .uri("/{registrationNumber}", registrationNumber)
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError,
+                        response -> Mono.error(new VehicleNotFoundException(registrationNumber)))
+                .bodyToMono(Vehicle.class)
+                .block();
+    }
+
+    /**
+     * Logs at the application's default level, so vehicle 404s are not logged but the replaced warnings are, and
+     * formats every event into a null stream so the console does not drown the results.
+     */
+    private static void discardLogOutput() {
+        ch.qos.logback.classic.Logger root =
+                (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(root.getLoggerContext());
+        encoder.setPattern("%d %-5level [%thread] %logger : %msg%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(root.getLoggerContext());
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        root.detachAndStopAllAppenders();
+        root.addAppender(appender);
+        root.setLevel(Level.INFO);
+    }
+
+    private static class VehicleNotFoundException extends RuntimeException {
+        VehicleNotFoundException(String registrationNumber) {
+            super("Vehicle not found: " + registrationNumber);
+        }
+    }
+}
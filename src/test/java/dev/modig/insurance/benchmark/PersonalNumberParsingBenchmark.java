@@ -0,0 +1,32 @@
+package dev.modig.insurance.benchmark;
+
+import dev.modig.insurance.model.PersonalNumbers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass {@link PersonalNumbers#parse(CharSequence)} with the previous controller validation,
+ * {@code replace("-", "")} followed by {@code String.matches}. Run with {@code -prof gc} to see allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonalNumberParsingBenchmark {
+
+    @Param({"19900101-1239", "199001011239", "invalid-input"})
+    private String personalNumber;
+
+    @Benchmark
+    public boolean replaceAndRegex() {
+        return personalNumber.replace("-", "").matches("^\\d{1,12}$");
+    }
+
+    @Benchmark
+    public long singlePassParser() {
+        return PersonalNumbers.parse(personalNumber);
+    }
+}
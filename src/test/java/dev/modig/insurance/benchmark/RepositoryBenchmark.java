@@ -0,0 +1,36 @@
+package dev.modig.insurance.benchmark;
+
+import dev.modig.insurance.model.Insurance;
+import dev.modig.insurance.repository.InsuranceRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InsuranceRepository#findByPersonalNumber(String)} for a known and an unknown personal number.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @Param({"199001011239", "199001019992"})
+    private String personalNumber;
+
+    private InsuranceRepository repository;
+
+    @Setup
+    public void setUp() {
+        repository = new InsuranceRepository();
+    }
+
+    @Benchmark
+    public Optional<List<Insurance>> findByPersonalNumber() {
+        return repository.findByPersonalNumber(personalNumber);
+    }
+}
@@ -0,0 +1,46 @@
+package dev.modig.insurance.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.modig.insurance.dto.PersonInsuranceResponse;
+import dev.modig.insurance.model.CarInsurance;
+import dev.modig.insurance.model.HealthInsurance;
+import dev.modig.insurance.model.PetInsurance;
+import dev.modig.insurance.model.Vehicle;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a {@link PersonInsuranceResponse} with a polymorphic insurance list, using an
+ * {@link ObjectMapper} configured the way Spring MVC configures it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private PersonInsuranceResponse response;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        response = new PersonInsuranceResponse("199001011239", List.of(
+                new HealthInsurance(),
+                new PetInsurance(),
+                new CarInsurance("ABC123", new Vehicle("ABC123", "Volvo", "XC90", 2020)),
+                new CarInsurance("XYZ789", null)
+        ), 90, 81);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
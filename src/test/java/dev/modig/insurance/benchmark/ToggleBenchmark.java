@@ -0,0 +1,33 @@
+package dev.modig.insurance.benchmark;
+
+import dev.modig.insurance.service.ToggleService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ToggleService#isDiscountEnabledFor(String)} for a toggled user and a user decided by the rollout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToggleBenchmark {
+
+    @Param({"199001011239", "190101010015"})
+    private String personalNumber;
+
+    private ToggleService toggleService;
+
+    @Setup
+    public void setUp() {
+        toggleService = BenchmarkFixtures.toggleService();
+    }
+
+    @Benchmark
+    public boolean isDiscountEnabledFor() {
+        return toggleService.isDiscountEnabledFor(personalNumber);
+    }
+}
@@ -0,0 +1,215 @@
+package dev.modig.insurance.capture;
+
+import dev.modig.insurance.config.CaptureProperties;
+import dev.modig.insurance.metrics.InsuranceMetrics.VehicleOutcome;
+import dev.modig.insurance.model.Vehicle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrafficRecorderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldWriteRequestsAndVehicleResponsesToJournal() throws Exception {
+        TrafficRecorder recorder = new TrafficRecorder(new CaptureProperties(true, directory, false, 1024));
+        Vehicle vehicle = new Vehicle("ABC123", "Volvo", "XC90", 2020);
+
+        recorder.recordRequest(199001011239L);
+        recorder.recordVehicleResponse("ABC123", VehicleOutcome.OK, vehicle, 1_000_000);
+        recorder.recordVehicleResponse("XYZ789", VehicleOutcome.TIMEOUT, null, 2_000_000_000L);
+        recorder.close();
+
+        List<JournalEntry> entries = read(recorder.journal());
+        assertEquals(3, entries.size());
+        assertEquals(199001011239L, ((JournalEntry.Request) entries.get(0)).personalNumber());
+        JournalEntry.VehicleResponse found = (JournalEntry.VehicleResponse) entries.get(1);
+        assertEquals(vehicle, found.vehicle());
+        assertEquals(1_000_000, found.durationNanos());
+        JournalEntry.VehicleResponse timedOut = (JournalEntry.VehicleResponse) entries.get(2);
+        assertEquals(VehicleOutcome.TIMEOUT, timedOut.outcome());
+        assertNull(timedOut.vehicle());
+        assertTrue(entries.get(0).offsetNanos() <= entries.get(2).offsetNanos());
+    }
+
+    @Test
+    void shouldKeepMissingVehicleDetailsMissing() throws Exception {
+        TrafficRecorder recorder = new TrafficRecorder(new CaptureProperties(true, directory, false, 1024));
+        Vehicle vehicle = new Vehicle("ABC123", null, "XC90", 2020);
+
+        recorder.recordVehicleResponse("ABC123", VehicleOutcome.OK, vehicle, 1_000_000);
+        recorder.close();
+
+        assertEquals(vehicle, ((JournalEntry.VehicleResponse) read(recorder.journal()).getFirst()).vehicle());
+    }
+
+    @Test
+    void shouldHashPersonalNumbersConsistently() throws Exception {
+        TrafficRecorder recorder = new TrafficRecorder(new CaptureProperties(true, directory, true, 1024));
+
+        recorder.recordRequest(199001011239L);
+        recorder.recordRequest(199001011239L);
+        recorder.recordRequest(200101010023L);
+        recorder.close();
+
+        try (DataInputStream in = open(recorder.journal())) {
+            assertTrue(TrafficJournal.readHeader(in).hashed());
+        }
+        List<JournalEntry> entries = read(recorder.journal());
+        long first = ((JournalEntry.Request) entries.get(0)).personalNumber();
+        assertNotEquals(199001011239L, first);
+        assertEquals(first, ((JournalEntry.Request) entries.get(1)).personalNumber());
+        assertNotEquals(first, ((JournalEntry.Request) entries.get(2)).personalNumber());
+    }
+
+    @Test
+    void shouldHashRegistrationNumbersConsistently() throws Exception {
+        TrafficRecorder recorder = new TrafficRecorder(new CaptureProperties(true, directory, true, 1024));
+        Vehicle vehicle = new Vehicle("ABC123", "Volvo", "XC90", 2020);
+
+        recorder.recordVehicleResponse("ABC123", VehicleOutcome.OK, vehicle, 1_000_000);
+        recorder.recordVehicleResponse("ABC123", VehicleOutcome.TIMEOUT, null, 2_000_000_000L);
+        recorder.recordVehicleResponse("XYZ789", VehicleOutcome.NOT_FOUND, null, 1_000_000);
+        recorder.close();
+
+        List<JournalEntry> entries = read(recorder.journal());
+        String first = ((JournalEntry.VehicleResponse) entries.get(0)).registrationNumber();
+        assertNotEquals("ABC123", first);
+        assertEquals("Volvo", ((JournalEntry.VehicleResponse) entries.get(0)).vehicle().make());
+        assertEquals(first, ((JournalEntry.VehicleResponse) entries.get(1)).registrationNumber());
+        assertNotEquals(first, ((JournalEntry.VehicleResponse) entries.get(2)).registrationNumber());
+        assertFalse(Files.readString(recorder.journal(), StandardCharsets.ISO_8859_1).contains("ABC123"));
+    }
+
+    @Test
+    void hashedPersonalNumbersShouldNotBeInvertible() throws Exception {
+        TrafficRecorder recorder = new TrafficRecorder(new CaptureProperties(true, directory, true, 1024));
+        long first = 199001011239L;
+        long second = 200101010023L;
+
+        recorder.recordRequest(first);
+        recorder.recordRequest(second);
+        recorder.close();
+
+        List<JournalEntry> entries = read(recorder.journal());
+        long firstHash = ((JournalEntry.Request) entries.get(0)).personalNumber();
+        long secondHash = ((JournalEntry.Request) entries.get(1)).personalNumber();
+        assertEquals(first, unmix(mix(first)));
+        // Were the hash fmix64(key ^ salt), inverting it would give key ^ salt and the salt would cancel out
+        assertNotEquals(first ^ second, unmix(firstHash) ^ unmix(secondHash));
+    }
+
+    @Test
+    void shouldDoNothingWhenDisabled() throws Exception {
+        TrafficRecorder recorder = TrafficRecorder.disabled();
+
+        recorder.recordRequest(199001011239L);
+        recorder.close();
+
+        assertFalse(recorder.isEnabled());
+        assertNull(recorder.journal());
+        assertEquals(0, recorder.dropped());
+    }
+
+    @Test
+    void ringBufferShouldRejectOffersWhenFull() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, buffer.poll());
+        }
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void ringBufferShouldDeliverEveryElementFromConcurrentProducers() throws Exception {
+        RingBuffer<Integer> buffer = new RingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 2_000;
+        Set<Integer> received = new HashSet<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(producers)) {
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                executor.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.yield();
+                        }
+                    }
+                });
+            }
+            while (received.size() < producers * perProducer) {
+                Integer element = buffer.poll();
+                if (element != null) {
+                    assertTrue(received.add(element));
+                }
+            }
+        }
+        assertNull(buffer.poll());
+    }
+
+    private static List<JournalEntry> read(Path journal) throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        try (DataInputStream in = open(journal)) {
+            TrafficJournal.readHeader(in);
+            for (JournalEntry entry = TrafficJournal.read(in); entry != null; entry = TrafficJournal.read(in)) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private static DataInputStream open(Path journal) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(journal)));
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static long unmix(long value) {
+        value ^= value >>> 33;
+        value *= inverse(0xc4ceb9fe1a85ec53L);
+        value ^= value >>> 33;
+        value *= inverse(0xff51afd7ed558ccdL);
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static long inverse(long odd) {
+        // Newton's iteration modulo 2^64, each step doubles the number of correct low bits
+        long inverse = odd;
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2 - odd * inverse;
+        }
+        return inverse;
+    }
+}
@@ -1,8 +1,10 @@
 package dev.modig.insurance.controller;
 
+import dev.modig.insurance.capture.TrafficRecorder;
 import dev.modig.insurance.dto.PersonInsuranceResponse;
-import dev.modig.insurance.exception.InsuranceNotFoundException;
+import dev.modig.insurance.metrics.RequestTimings;
 import dev.modig.insurance.model.HealthInsurance;
+import dev.modig.insurance.service.InsuranceLookup;
 import dev.modig.insurance.service.InsuranceService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,16 +25,16 @@ class InsuranceControllerUnitTest {
     @BeforeEach
     void setUp() {
         insuranceService = mock(InsuranceService.class);
-        controller = new InsuranceController(insuranceService);
+        controller = new InsuranceController(insuranceService, TrafficRecorder.disabled(), RequestTimings.disabled());
     }
 
     @Test
     void shouldReturnResponseFromServiceForValidPersonalNumber() {
-        String input = "19900101-1234";
-        String expected = "199001011234";
+        String input = "19900101-1239";
+        String expected = "199001011239";
 
         PersonInsuranceResponse mockResponse = new PersonInsuranceResponse(expected, List.of(new HealthInsurance()), 500, null);
-        when(insuranceService.getInsurancesFor(expected)).thenReturn(mockResponse);
+        when(insuranceService.findInsurancesFor(199001011239L)).thenReturn(new InsuranceLookup.Found(mockResponse));
 
         ResponseEntity<?> response = controller.getInsuranceInfo(input);
 
@@ -42,14 +44,13 @@ class InsuranceControllerUnitTest {
 
     @Test
     void shouldStripHyphenFromPersonalNumber() {
-        String input = "20001212-5678";
-        String expected = "200012125678";
+        String input = "20001212-5670";
 
-        when(insuranceService.getInsurancesFor(expected)).thenReturn(mock(PersonInsuranceResponse.class));
+        when(insuranceService.findInsurancesFor(200012125670L)).thenReturn(new InsuranceLookup.Found(mock(PersonInsuranceResponse.class)));
 
         controller.getInsuranceInfo(input);
 
-        verify(insuranceService).getInsurancesFor(expected);
+        verify(insuranceService).findInsurancesFor(200012125670L);
     }
 
     @Test
@@ -62,16 +63,58 @@ class InsuranceControllerUnitTest {
         assertEquals("Invalid personal number", ex.getReason());
     }
 
+    @Test
+    void shouldPassParsedKeyThrough() {
+        String input = "199001011239";
+
+        when(insuranceService.findInsurancesFor(199001011239L)).thenReturn(new InsuranceLookup.Found(mock(PersonInsuranceResponse.class)));
+
+        controller.getInsuranceInfo(input);
+
+        verify(insuranceService).findInsurancesFor(199001011239L);
+        verify(insuranceService, never()).findInsurancesFor(anyString());
+    }
+
+    @Test
+    void shouldReturnBadRequestForInvalidChecksum() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> controller.getInsuranceInfo("19900101-1234"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        verifyNoInteractions(insuranceService);
+    }
+
+    @Test
+    void shouldReturnBadRequestForInvalidDate() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> controller.getInsuranceInfo("19900230-1233"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        verifyNoInteractions(insuranceService);
+    }
+
     @Test
     void shouldReturn404WhenInsuranceNotFound() {
-        String input = "19900101-0000";
-        String stripped = "199001010000";
+        String input = "19900101-0009";
 
-        when(insuranceService.getInsurancesFor(stripped)).thenThrow(new InsuranceNotFoundException(stripped));
+        when(insuranceService.findInsurancesFor(199001010009L)).thenReturn(InsuranceLookup.NOT_FOUND);
 
         ResponseEntity<?> response = controller.getInsuranceInfo(input);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertEquals("Insurance not found", response.getBody());
     }
+
+    @Test
+    void shouldReturnResponseWhenVehicleEnrichmentIsDegraded() {
+        String input = "19900101-1239";
+        PersonInsuranceResponse mockResponse = mock(PersonInsuranceResponse.class);
+
+        when(insuranceService.findInsurancesFor(199001011239L)).thenReturn(new InsuranceLookup.Degraded(mockResponse));
+
+        ResponseEntity<?> response = controller.getInsuranceInfo(input);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(mockResponse, response.getBody());
+    }
 }
@@ -0,0 +1,72 @@
+package dev.modig.insurance.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.modig.insurance.config.PricingProperties;
+import dev.modig.insurance.config.RolloutProperties;
+import dev.modig.insurance.config.WarmUpProperties;
+import dev.modig.insurance.metrics.InsuranceMetrics;
+import dev.modig.insurance.metrics.RequestTimings;
+import dev.modig.insurance.repository.InsuranceRepository;
+import dev.modig.insurance.service.PricingEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ff4j.FF4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmUpRunnerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WarmUpRunner runner(Duration latencyBudget, boolean enforceBudgets) {
+        FF4j ff4j = new FF4j();
+        ff4j.createFeature("DISCOUNT_CAMPAIGN");
+        ff4j.getFeatureStore().enable("DISCOUNT_CAMPAIGN");
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        return new WarmUpRunner(
+                new WarmUpProperties(true, Duration.ofSeconds(2), 50, Duration.ofMillis(5), 2, 200, null,
+                        latencyBudget, enforceBudgets),
+                new InsuranceRepository(),
+                new PricingEngine(new PricingProperties(null, null,
+                        List.of(new PricingProperties.CampaignDiscount("DISCOUNT_CAMPAIGN", 10)), null)),
+                ff4j,
+                new RolloutProperties(Map.of("DISCOUNT_CAMPAIGN", new RolloutProperties.Campaign(20, null))),
+                objectMapper,
+                new InsuranceMetrics(meterRegistry, RequestTimings.disabled()));
+    }
+
+    @Test
+    void shouldDriveSyntheticRequestsAndMeasureLatency() {
+        WarmUpRunner.Report report = runner(null, false).warmUp();
+
+        assertTrue(report.requests() >= 100);
+        assertTrue(report.warmUp().compareTo(Duration.ofSeconds(3)) < 0);
+        assertTrue(report.p50().compareTo(report.p99()) <= 0);
+        assertTrue(report.timeToReady().isPositive());
+    }
+
+    @Test
+    void shouldPublishReportAsMetrics() {
+        runner(null, false).run(null);
+
+        assertTrue(meterRegistry.get("insurance.warmup.time.to.ready").timeGauge().value(TimeUnit.NANOSECONDS) > 0);
+        assertTrue(meterRegistry.get("insurance.warmup.latency").tag("quantile", "0.99").timeGauge()
+                .value(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    void shouldFailStartupWhenEnforcedBudgetIsMissed() {
+        assertThrows(IllegalStateException.class, () -> runner(Duration.ofNanos(1), true).run(null));
+    }
+
+    @Test
+    void shouldOnlyLogMissedBudgetWhenNotEnforced() {
+        assertDoesNotThrow(() -> runner(Duration.ofNanos(1), false).run(null));
+    }
+}
@@ -37,12 +37,12 @@ class InsuranceE2ETest {
     @Test
     void testGetInsurancesSuccessWithDiscount() {
         ResponseEntity<PersonInsuranceResponse> response = restTemplate.getForEntity(
-                baseUrl() + "/19900101-1234", PersonInsuranceResponse.class);
+                baseUrl() + "/19900101-1239", PersonInsuranceResponse.class);
 
         PersonInsuranceResponse body = response.getBody();
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(body).isNotNull();
-        assertThat(body.personalNumber()).isEqualTo("199001011234");
+        assertThat(body.personalNumber()).isEqualTo("199001011239");
         assertThat(body.totalCost()).isEqualTo(80);
         assertThat(body.discountedTotalCost()).isEqualTo(72);
         assertThat(body.insurances()).hasSize(3);
@@ -82,7 +82,7 @@ class InsuranceE2ETest {
     @Test
     void testInsuranceNotFound() {
         ResponseEntity<String> response = restTemplate.getForEntity(
-                baseUrl() + "/19900101-9999", String.class);
+                baseUrl() + "/19900101-9992", String.class);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
         assertThat(response.getBody()).isEqualTo("Insurance not found");
@@ -19,9 +19,9 @@ class InsuranceServiceIntegrationTest {
 
     @Test
     void shouldReturnInsurancesWhenValidPersonalNumberExists() throws Exception {
-        mockMvc.perform(get("/api/v1/insurance/19900101-1234"))
+        mockMvc.perform(get("/api/v1/insurance/19900101-1239"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.personalNumber").value("199001011234"))
+                .andExpect(jsonPath("$.personalNumber").value("199001011239"))
                 .andExpect(jsonPath("$.insurances", hasSize(3)))
                 .andExpect(jsonPath("$.insurances[?(@.type == 'HEALTH')].monthlyCost", hasItem(20)))
                 .andExpect(jsonPath("$.insurances[?(@.type == 'CAR')].registrationNumber",
@@ -39,7 +39,7 @@ class InsuranceServiceIntegrationTest {
 
     @Test
     void shouldReturnNotFoundWhenNoInsuranceExists() throws Exception {
-        mockMvc.perform(get("/api/v1/insurance/19900101-9999"))
+        mockMvc.perform(get("/api/v1/insurance/19900101-9992"))
                 .andExpect(status().isNotFound())
                 .andExpect(content().string("Insurance not found"));
     }
@@ -0,0 +1,64 @@
+package dev.modig.insurance.integration;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {"timing.server-timing=true", "timing.slow-threshold=0ms",
+        "management.endpoints.web.exposure.include=health,prometheus,slowrequests"})
+@AutoConfigureMockMvc
+class RequestTimingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldAddServerTimingHeaderWithEveryStage() throws Exception {
+        mockMvc.perform(get("/api/v1/insurance/19900101-1239"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", allOf(
+                        startsWith("validation;dur="),
+                        containsString("repository;dur="),
+                        containsString("vehicle;desc=\"ABC123 "),
+                        containsString("vehicle;desc=\"XYZ789 "),
+                        containsString("toggle;desc="),
+                        containsString("serialization;dur="),
+                        containsString("total;dur="))))
+                .andExpect(jsonPath("$.personalNumber").value("199001011239"));
+    }
+
+    @Test
+    void shouldExposeSlowRequestsThroughActuator() throws Exception {
+        mockMvc.perform(get("/api/v1/insurance/19010101-0015"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/slowrequests"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].route").value("/api/v1/insurance/{personalNumber}"))
+                .andExpect(content().string(not(containsString("19010101-0015"))))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].stages[*].name", hasItems("validation", "repository", "total")));
+    }
+
+    @SpringBootTest(properties = "timing.slow-threshold=0ms")
+    @AutoConfigureMockMvc
+    @Nested
+    class DefaultExposure {
+
+        @Autowired
+        private MockMvc mockMvc;
+
+        @Test
+        void shouldNotExposeSlowRequestsUnlessOptedIn() throws Exception {
+            mockMvc.perform(get("/actuator/slowrequests"))
+                    .andExpect(status().isNotFound());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package dev.modig.insurance.loadtest;
+
+import dev.modig.insurance.repository.InsuranceRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Trains the AppCDS archive of the lean production launch on real traffic.
+ * <p>
+ * The thin jar is started with {@code -XX:ArchiveClassesAtExit} and the {@code prod} profile, pointed at a
+ * {@link VehicleServiceSimulator}. Once it has started, every known personal number is requested over HTTP, along with
+ * an invalid and an unknown one and the readiness probe, so that request handling, Jackson serialization and the
+ * vehicle WebClient are loaded as well as context startup. The application is then stopped, which writes the archive.
+ * Options:
+ * <ul>
+ *   <li>{@code --jar=target/insurance-service-0.0.1-SNAPSHOT-lean.jar} the thin jar, required</li>
+ *   <li>{@code --archive=target/lean/insurance-service.jsa} the AppCDS archive to write, required</li>
+ *   <li>{@code --rounds=20} how many times every request is sent</li>
+ * </ul>
+ */
+public class CdsTraining {
+
+    private static final Pattern PORT = Pattern.compile("Tomcat started on port (\\d+)");
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    public static void main(String[] args) throws Exception {
+        LoadTestArguments arguments = new LoadTestArguments(args);
+        String jar = required(arguments, "jar");
+        Path archive = Path.of(required(arguments, "archive"));
+        int rounds = arguments.getInt("rounds", 20);
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Files.deleteIfExists(archive);
+        Files.createDirectories(archive.toAbsolutePath().getParent());
+
+        try (VehicleServiceSimulator vehicleService = VehicleServiceSimulator.start(0, new VehicleServiceSimulator.Scenario(
+                LatencyDistribution.fixed(Duration.ZERO), 0, 0.2, Duration.ZERO, 1, List.of()))) {
+            Process process = new ProcessBuilder(java, "-XX:ArchiveClassesAtExit=" + archive,
+                    // Dynamic proxies cannot be archived, which is expected
+                    "-Xlog:cds=off", "-Dspring.aot.enabled=true", "-Dspring.profiles.active=prod", "-jar", jar,
+                    "--server.port=0", "--vehicle.service.url=" + vehicleService.url())
+                    .redirectErrorStream(true)
+                    .start();
+            try {
+                int port = awaitPort(process);
+                int requests = sendTraffic(port, rounds);
+                System.out.printf("Trained on %d requests, %d vehicle service calls%n", requests,
+                        vehicleService.requests());
+            } finally {
+                // A normal shutdown, not a kill, so the JVM writes the archive on exit
+                process.destroy();
+                if (!process.waitFor(1, TimeUnit.MINUTES)) {
+                    process.destroyForcibly();
+                    throw new IllegalStateException("Training launch did not stop");
+                }
+            }
+        }
+        if (!Files.exists(archive)) {
+            throw new IllegalStateException("No archive was written to " + archive);
+        }
+        System.out.printf("Wrote %s (%d MB)%n", archive, Files.size(archive) / (1024 * 1024));
+    }
+
+    private static int sendTraffic(int port, int rounds) throws IOException, InterruptedException {
+        List<String> paths = new ArrayList<>();
+        new InsuranceRepository().findAll().keySet().forEach(personalNumber -> {
+            paths.add("/api/v1/insurance/" + personalNumber);
+            paths.add("/api/v1/insurance/" + personalNumber.substring(0, 8) + "-" + personalNumber.substring(8));
+        });
+        paths.add("/api/v1/insurance/199001019992");
+        paths.add("/api/v1/insurance/invalid");
+        paths.add("/actuator/health/readiness");
+
+        HttpClient client = HttpClient.newHttpClient();
+        int requests = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (String path : paths) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                        .timeout(Duration.ofSeconds(10))
+                        .build();
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+                requests++;
+            }
+        }
+        return requests;
+    }
+
+    private static int awaitPort(Process process) throws Exception {
+        List<String> output = new ArrayList<>();
+        CompletableFuture<Integer> port = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    output.add(line);
+                    Matcher matcher = PORT.matcher(line);
+                    if (matcher.find()) {
+                        port.complete(Integer.parseInt(matcher.group(1)));
+                    }
+                }
+                port.completeExceptionally(new IllegalStateException(
+                        "Training launch exited before starting:\n" + String.join("\n", output)));
+            } catch (IOException e) {
+                port.completeExceptionally(e);
+            }
+        });
+        return port.get(START_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    private static String required(LoadTestArguments arguments, String key) {
+        String value = arguments.get(key, null);
+        if (value == null) {
+            throw new IllegalArgumentException("--" + key + " is required");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,71 @@
+package dev.modig.insurance.loadtest;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * Response latency of the simulated vehicle service.
+ */
+public sealed interface LatencyDistribution {
+
+    /**
+     * @param random source of randomness, owned by the calling thread
+     * @return the next latency in nanoseconds
+     */
+    long sampleNanos(RandomGenerator random);
+
+    static LatencyDistribution fixed(Duration latency) {
+        return new Fixed(latency.toNanos());
+    }
+
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        return new Uniform(min.toNanos(), max.toNanos());
+    }
+
+    /**
+     * A long-tailed distribution, which is what real upstream latency usually looks like.
+     *
+     * @param median median latency
+     * @param sigma  standard deviation of the underlying normal distribution, 0.5 gives p99 around 3x the median
+     */
+    static LatencyDistribution logNormal(Duration median, double sigma) {
+        return new LogNormal(median.toNanos(), sigma);
+    }
+
+    /**
+     * Parses {@code fixed:20ms}, {@code uniform:5ms-50ms} or {@code lognormal:20ms:0.5}.
+     */
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        return switch (parts[0]) {
+            case "fixed" -> fixed(LoadTestArguments.duration(parts[1]));
+            case "uniform" -> {
+                String[] range = parts[1].split("-");
+                yield uniform(LoadTestArguments.duration(range[0]), LoadTestArguments.duration(range[1]));
+            }
+            case "lognormal" -> logNormal(LoadTestArguments.duration(parts[1]), Double.parseDouble(parts[2]));
+            default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        };
+    }
+
+    record Fixed(long nanos) implements LatencyDistribution {
+        @Override
+        public long sampleNanos(RandomGenerator random) {
+            return nanos;
+        }
+    }
+
+    record Uniform(long minNanos, long maxNanos) implements LatencyDistribution {
+        @Override
+        public long sampleNanos(RandomGenerator random) {
+            return minNanos == maxNanos ? minNanos : random.nextLong(minNanos, maxNanos);
+        }
+    }
+
+    record LogNormal(long medianNanos, double sigma) implements LatencyDistribution {
+        @Override
+        public long sampleNanos(RandomGenerator random) {
+            return (long) (medianNanos * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+}
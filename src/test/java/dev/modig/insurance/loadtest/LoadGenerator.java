@@ -0,0 +1,215 @@
+package dev.modig.insurance.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Drives HTTP load against a URL template and records latency in an HdrHistogram.
+ * <p>
+ * Three modes are supported:
+ * <ul>
+ *   <li>Open loop: requests are started at a constant rate regardless of how fast responses come back. Latency is
+ *   measured from when a request was scheduled to start, so a stalled server is not hidden by coordinated
+ *   omission.</li>
+ *   <li>Closed loop: a fixed number of workers each send the next request as soon as the previous one completes.</li>
+ *   <li>Replay: like open loop, but requests start at recorded times, see {@link TrafficReplay}.</li>
+ * </ul>
+ */
+public class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final HttpClient client;
+    private final String urlTemplate;
+    private final List<String> keys;
+    private final Duration requestTimeout;
+
+    /**
+     * @param urlTemplate    target URL with {@code {key}} where the key goes, e.g.
+     *                       {@code http://localhost:8081/api/v1/insurance/{key}}
+     * @param keys           keys to cycle through
+     * @param requestTimeout timeout per request, timed out requests are recorded with the timeout as latency
+     */
+    public LoadGenerator(String urlTemplate, List<String> keys, Duration requestTimeout) {
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.urlTemplate = urlTemplate;
+        this.keys = List.copyOf(keys);
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Starts requests at a constant rate.
+     *
+     * @param requestsPerSecond target rate
+     * @param duration          how long to generate load
+     * @return the collected results
+     */
+    public Report openLoop(int requestsPerSecond, Duration duration) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        long count = (duration.toNanos() + intervalNanos - 1) / intervalNanos;
+        return schedule(count, i -> i * intervalNanos, this::request);
+    }
+
+    /**
+     * Replays requests at recorded times, ignoring the keys given to the constructor.
+     *
+     * @param offsetsNanos when each request starts, relative to the first, in ascending order
+     * @param keys         key of each request
+     * @param speed        time scale, 2 replays twice as fast as recorded
+     * @return the collected results
+     */
+    public Report replay(long[] offsetsNanos, List<String> keys, double speed) {
+        return schedule(offsetsNanos.length, i -> (long) (offsetsNanos[(int) i] / speed),
+                i -> request(keys.get((int) i)));
+    }
+
+    private Report schedule(long count, LongUnaryOperator offsetNanos, LongFunction<HttpRequest> requests) {
+        Report report = new Report();
+        long start = System.nanoTime();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+
+        for (long i = 0; i < count; i++) {
+            long intended = start + offsetNanos.applyAsLong(i);
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.add(client.sendAsync(requests.apply(i), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, failure) -> {
+                        report.record(intended, response, failure);
+                        return null;
+                    }));
+            if (inFlight.size() >= 10_000) {
+                inFlight.removeIf(CompletableFuture::isDone);
+            }
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+        report.finish(start);
+        return report;
+    }
+
+    /**
+     * Runs a fixed number of workers that each send requests back to back.
+     *
+     * @param concurrency number of workers
+     * @param duration    how long to generate load
+     * @return the collected results
+     */
+    public Report closedLoop(int concurrency, Duration duration) {
+        Report report = new Report();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int worker = 0; worker < concurrency; worker++) {
+                long offset = worker;
+                workers.submit(() -> {
+                    for (long i = offset; System.nanoTime() < end; i += concurrency) {
+                        long started = System.nanoTime();
+                        try {
+                            report.record(started, client.send(request(i), HttpResponse.BodyHandlers.discarding()), null);
+                        } catch (IOException e) {
+                            report.record(started, null, e);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                });
+            }
+        }
+        report.finish(start);
+        return report;
+    }
+
+    private HttpRequest request(long sequence) {
+        return request(keys.get((int) (sequence % keys.size())));
+    }
+
+    private HttpRequest request(String key) {
+        return HttpRequest.newBuilder(URI.create(urlTemplate.replace("{key}", key)))
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+    }
+
+    /**
+     * Latency histogram and response counts of a run.
+     */
+    public static class Report {
+
+        private final Histogram latencyMicros = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final AtomicLongArray statusClasses = new AtomicLongArray(6);
+        private final LongAdder failures = new LongAdder();
+        private long elapsedNanos;
+
+        void record(long startNanos, HttpResponse<?> response, Throwable failure) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+            latencyMicros.recordValue(Math.min(Math.max(micros, 0), HIGHEST_TRACKABLE_MICROS));
+            if (response != null) {
+                statusClasses.incrementAndGet(response.statusCode() / 100);
+            } else {
+                failures.increment();
+            }
+        }
+
+        void finish(long startNanos) {
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+
+        public Histogram latencyMicros() {
+            return latencyMicros;
+        }
+
+        /**
+         * @param statusClass 2 for 2xx, 4 for 4xx and so on
+         */
+        public long responses(int statusClass) {
+            return statusClasses.get(statusClass);
+        }
+
+        public long failures() {
+            return failures.sum();
+        }
+
+        public long total() {
+            return latencyMicros.getTotalCount();
+        }
+
+        public void print(PrintStream out) {
+            double seconds = elapsedNanos / 1e9;
+            out.printf("Requests: %d in %.1fs (%.0f req/s)%n", total(), seconds, total() / seconds);
+            out.printf("Responses: 2xx=%d 4xx=%d 5xx=%d failed=%d%n",
+                    responses(2), responses(4), responses(5), failures());
+            out.printf("Latency (ms): p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+                    percentile(50), percentile(90), percentile(99), percentile(99.9),
+                    latencyMicros.getMaxValue() / 1000.0);
+            latencyMicros.outputPercentileDistribution(out, 1000.0);
+        }
+
+        private double percentile(double percentile) {
+            return latencyMicros.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package dev.modig.insurance.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+
+    private static final List<String> PLATES = List.of("ABC123", "XYZ789", "AUD00I");
+
+    @Test
+    void shouldDriveClosedLoopLoadAgainstSimulator() throws Exception {
+        VehicleServiceSimulator.Scenario scenario =
+                VehicleServiceSimulator.Scenario.healthy(LatencyDistribution.fixed(Duration.ofMillis(1)));
+
+        try (VehicleServiceSimulator simulator = VehicleServiceSimulator.start(0, scenario)) {
+            LoadGenerator generator = new LoadGenerator(simulator.url() + "/{key}", PLATES, Duration.ofSeconds(5));
+
+            LoadGenerator.Report report = generator.closedLoop(4, Duration.ofMillis(300));
+
+            assertTrue(report.total() > 0);
+            assertEquals(report.total(), report.responses(2));
+            assertEquals(report.total(), simulator.requests());
+            assertTrue(report.latencyMicros().getValueAtPercentile(50) >= 1_000);
+        }
+    }
+
+    @Test
+    void shouldKeepOpenLoopRateAndReportOutages() throws Exception {
+        VehicleServiceSimulator.Scenario scenario = new VehicleServiceSimulator.Scenario(
+                LatencyDistribution.fixed(Duration.ZERO), 0, 0, Duration.ZERO, 1,
+                List.of(new VehicleServiceSimulator.Outage(Duration.ZERO, Duration.ofMinutes(1),
+                        VehicleServiceSimulator.OutageMode.ERROR)));
+
+        try (VehicleServiceSimulator simulator = VehicleServiceSimulator.start(0, scenario)) {
+            LoadGenerator generator = new LoadGenerator(simulator.url() + "/{key}", PLATES, Duration.ofSeconds(5));
+
+            LoadGenerator.Report report = generator.openLoop(200, Duration.ofMillis(500));
+
+            assertEquals(100, report.total(), 5);
+            assertEquals(report.total(), report.responses(5));
+        }
+    }
+
+    @Test
+    void shouldAnswerSamePlatesWithNotFoundConsistently() throws Exception {
+        VehicleServiceSimulator.Scenario scenario = new VehicleServiceSimulator.Scenario(
+                LatencyDistribution.fixed(Duration.ZERO), 0, 1, Duration.ZERO, 1, List.of());
+
+        try (VehicleServiceSimulator simulator = VehicleServiceSimulator.start(0, scenario)) {
+            LoadGenerator generator = new LoadGenerator(simulator.url() + "/{key}", PLATES, Duration.ofSeconds(5));
+
+            LoadGenerator.Report report = generator.closedLoop(2, Duration.ofMillis(200));
+
+            assertEquals(report.total(), report.responses(4));
+            assertEquals(report.total(), simulator.notFound());
+        }
+    }
+}
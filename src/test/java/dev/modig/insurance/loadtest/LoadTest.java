@@ -0,0 +1,80 @@
+package dev.modig.insurance.loadtest;
+
+import dev.modig.insurance.InsuranceServiceApplication;
+import dev.modig.insurance.repository.InsuranceRepository;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Load test of {@code /api/v1/insurance/{personalNumber}} on a single machine without network access.
+ * <p>
+ * Unless {@code --target} points at a running instance, a {@link VehicleServiceSimulator} and the application are
+ * started in-process on free loopback ports. Simulator options are described in {@link VehicleServiceSimulator};
+ * load options are:
+ * <ul>
+ *   <li>{@code --mode=open|closed} constant rate or fixed concurrency, default open</li>
+ *   <li>{@code --rate=500} requests per second in open mode</li>
+ *   <li>{@code --concurrency=32} workers in closed mode</li>
+ *   <li>{@code --duration=30s} and {@code --warmup=10s}, the warm-up run is not reported</li>
+ *   <li>{@code --keys=199001011239,...} personal numbers to cycle through, default all in the repository</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestArguments arguments = new LoadTestArguments(args);
+        String target = arguments.get("target", null);
+        VehicleServiceSimulator simulator = null;
+        ConfigurableApplicationContext application = null;
+
+        try {
+            if (target == null) {
+                simulator = VehicleServiceSimulator.start(0, VehicleServiceSimulator.Scenario.fromArguments(arguments));
+                application = SpringApplication.run(InsuranceServiceApplication.class,
+                        "--server.port=0", "--vehicle.service.url=" + simulator.url());
+                target = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+            }
+
+            List<String> keys = arguments.get("keys", null) == null
+                    ? List.copyOf(new InsuranceRepository().findAll().keySet())
+                    : Arrays.asList(arguments.get("keys", null).split(","));
+            LoadGenerator generator = new LoadGenerator(target + "/api/v1/insurance/{key}", keys,
+                    arguments.getDuration("timeout", Duration.ofSeconds(10)));
+
+            Duration warmup = arguments.getDuration("warmup", Duration.ofSeconds(10));
+            if (!warmup.isZero()) {
+                System.out.println("Warming up for " + warmup);
+                run(generator, arguments, warmup);
+            }
+
+            Duration duration = arguments.getDuration("duration", Duration.ofSeconds(30));
+            System.out.println("Running " + arguments.get("mode", "open") + " loop load against " + target
+                    + " for " + duration);
+            run(generator, arguments, duration).print(System.out);
+
+            if (simulator != null) {
+                System.out.printf("Vehicle simulator: requests=%d 404=%d errors=%d%n",
+                        simulator.requests(), simulator.notFound(), simulator.errors());
+            }
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+            if (simulator != null) {
+                simulator.close();
+            }
+        }
+    }
+
+    private static LoadGenerator.Report run(LoadGenerator generator, LoadTestArguments arguments, Duration duration) {
+        return switch (arguments.get("mode", "open")) {
+            case "open" -> generator.openLoop(arguments.getInt("rate", 500), duration);
+            case "closed" -> generator.closedLoop(arguments.getInt("concurrency", 32), duration);
+            default -> throw new IllegalArgumentException("Unknown mode: " + arguments.get("mode", null));
+        };
+    }
+}
@@ -0,0 +1,158 @@
+package dev.modig.insurance.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.modig.insurance.capture.JournalEntry;
+import dev.modig.insurance.model.Vehicle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A stand-in for the vehicle service that answers with responses recorded in a traffic journal.
+ * <p>
+ * Each registration number is answered with its recorded responses in order, starting over when they run out, after
+ * the recorded latency. Timeouts are reproduced by hanging for the recorded duration, failures by a 503 and
+ * registration numbers that were never recorded by a 404. Hashed registration numbers cannot be matched, so with a
+ * hashed journal each registration number that is asked for is assigned the responses of a recorded one, in order
+ * of first request, and only falls back to a 404 once every recorded one is taken.
+ */
+public class RecordedVehicleService implements AutoCloseable {
+
+    private static final String PATH = "/api/v1/vehicle";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private record Responses(List<JournalEntry.VehicleResponse> recorded, AtomicInteger next) {
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Responses> responses;
+    private final boolean hashed;
+    private final List<Responses> unassigned;
+    private final Map<String, Responses> assigned = new ConcurrentHashMap<>();
+    private final AtomicInteger nextUnassigned = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+
+    private RecordedVehicleService(HttpServer server, ExecutorService executor, Map<String, Responses> responses,
+                                   boolean hashed) {
+        this.server = server;
+        this.executor = executor;
+        this.responses = responses;
+        this.hashed = hashed;
+        this.unassigned = responses.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(Map.Entry::getValue)
+                .toList();
+    }
+
+    /**
+     * Starts the service on the loopback interface.
+     *
+     * @param port     port to listen on, 0 for any free port
+     * @param recorded recorded vehicle responses in journal order
+     * @param hashed   whether the journal holds hashed registration numbers
+     * @return the running service
+     */
+    public static RecordedVehicleService start(int port, List<JournalEntry.VehicleResponse> recorded, boolean hashed)
+            throws IOException {
+        Map<String, List<JournalEntry.VehicleResponse>> byRegistrationNumber = new HashMap<>();
+        for (JournalEntry.VehicleResponse response : recorded) {
+            byRegistrationNumber.computeIfAbsent(response.registrationNumber(), plate -> new ArrayList<>())
+                    .add(response);
+        }
+        Map<String, Responses> responses = new HashMap<>();
+        byRegistrationNumber.forEach((plate, list) -> responses.put(plate, new Responses(list, new AtomicInteger())));
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        RecordedVehicleService service = new RecordedVehicleService(server, executor, Map.copyOf(responses),
+                hashed);
+        server.createContext(PATH, service::handle);
+        server.setExecutor(executor);
+        server.start();
+        return service;
+    }
+
+    /**
+     * @return the base URL to use as {@code vehicle.service.url}
+     */
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            String path = exchange.getRequestURI().getPath();
+            String registrationNumber = path.substring(path.lastIndexOf('/') + 1);
+            Responses recorded = responsesFor(registrationNumber);
+            if (recorded == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            JournalEntry.VehicleResponse response = recorded.recorded()
+                    .get(Math.floorMod(recorded.next().getAndIncrement(), recorded.recorded().size()));
+            sleep(response.durationNanos());
+
+            switch (response.outcome()) {
+                case OK -> {
+                    Vehicle vehicle = response.vehicle();
+                    byte[] body = OBJECT_MAPPER.writeValueAsBytes(
+                            new Vehicle(registrationNumber, vehicle.make(), vehicle.model(), vehicle.year()));
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+                case NOT_FOUND -> exchange.sendResponseHeaders(404, -1);
+                case SERVER_ERROR, TIMEOUT, ERROR -> exchange.sendResponseHeaders(503, -1);
+            }
+        }
+    }
+
+    private Responses responsesFor(String registrationNumber) {
+        if (!hashed) {
+            return responses.get(registrationNumber);
+        }
+        return assigned.computeIfAbsent(registrationNumber, plate -> {
+            int next = nextUnassigned.getAndIncrement();
+            return next < unassigned.size() ? unassigned.get(next) : null;
+        });
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package dev.modig.insurance.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares startup time and resident memory of the default launch with the lean production launch built by the
+ * {@code lean} Maven profile.
+ * <p>
+ * Both launches run the same thin jar. The default launch uses no flags, as today; the lean launch activates the
+ * {@code prod} profile, the AOT-processed bean definitions and the AppCDS archive. Each launch is started
+ * {@code --runs} times, alternating, and measured at the {@code Started InsuranceServiceApplication} log line: the
+ * startup time is the JVM uptime Spring Boot reports there and the RSS is read from {@code /proc} (Linux only, 0
+ * elsewhere). Options:
+ * <ul>
+ *   <li>{@code --jar=target/insurance-service-0.0.1-SNAPSHOT-lean.jar} the thin jar, required</li>
+ *   <li>{@code --archive=target/lean/insurance-service.jsa} the AppCDS archive, required</li>
+ *   <li>{@code --runs=5} starts per launch</li>
+ *   <li>{@code --result=target/startup.json} where to write medians as JSON, optional</li>
+ * </ul>
+ */
+public class StartupBenchmark {
+
+    private static final Pattern STARTED = Pattern.compile(
+            "Started InsuranceServiceApplication in [0-9.]+ seconds \\(process running for ([0-9.]+)\\)");
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    private record Launch(String name, List<String> command) {
+    }
+
+    private record Sample(double startupMillis, long rssKilobytes) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestArguments arguments = new LoadTestArguments(args);
+        String jar = required(arguments, "jar");
+        String archive = required(arguments, "archive");
+        int runs = arguments.getInt("runs", 5);
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        List<Launch> launches = List.of(
+                new Launch("default", List.of(java, "-jar", jar, "--server.port=0")),
+                new Launch("lean", List.of(java, "-XX:SharedArchiveFile=" + archive, "-Xshare:auto",
+                        "-Dspring.aot.enabled=true", "-Dspring.profiles.active=prod", "-jar", jar,
+                        "--server.port=0")));
+
+        List<List<Sample>> samples = new ArrayList<>();
+        launches.forEach(launch -> samples.add(new ArrayList<>()));
+        for (int run = 0; run < runs; run++) {
+            for (int i = 0; i < launches.size(); i++) {
+                Sample sample = measure(launches.get(i));
+                samples.get(i).add(sample);
+                System.out.printf(Locale.ROOT, "%-8s run %d: startup=%.0fms rss=%dMB%n", launches.get(i).name(),
+                        run + 1, sample.startupMillis(), sample.rssKilobytes() / 1024);
+            }
+        }
+
+        StringBuilder json = new StringBuilder("{");
+        System.out.printf("%n%-8s %14s %10s%n", "launch", "startup (ms)", "RSS (MB)");
+        for (int i = 0; i < launches.size(); i++) {
+            double startup = median(samples.get(i).stream().mapToDouble(Sample::startupMillis).toArray());
+            double rss = median(samples.get(i).stream().mapToDouble(Sample::rssKilobytes).toArray()) / 1024;
+            System.out.printf(Locale.ROOT, "%-8s %14.0f %10.0f%n", launches.get(i).name(), startup, rss);
+            json.append(i == 0 ? "" : ",").append(String.format(Locale.ROOT,
+                    "\"%s\":{\"startupMillis\":%.0f,\"rssMegabytes\":%.0f}", launches.get(i).name(), startup, rss));
+        }
+        json.append('}');
+
+        String result = arguments.get("result", null);
+        if (result != null) {
+            Files.writeString(Path.of(result), json);
+            System.out.println("Wrote " + result);
+        }
+    }
+
+    private static Sample measure(Launch launch) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(launch.command()).redirectErrorStream(true).start();
+        List<String> output = new ArrayList<>();
+        CompletableFuture<Double> started = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    output.add(line);
+                    Matcher matcher = STARTED.matcher(line);
+                    if (matcher.find()) {
+                        started.complete(Double.parseDouble(matcher.group(1)) * 1000);
+                    }
+                }
+                started.completeExceptionally(new IllegalStateException(
+                        launch.name() + " exited before starting:\n" + String.join("\n", output)));
+            } catch (IOException e) {
+                started.completeExceptionally(e);
+            }
+        });
+        try {
+            double startupMillis = started.get(START_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+            return new Sample(startupMillis, rssKilobytes(process.pid()));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not measure " + launch.name(), e);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static long rssKilobytes(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        }
+        return 0;
+    }
+
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    private static String required(LoadTestArguments arguments, String key) {
+        String value = arguments.get(key, null);
+        if (value == null) {
+            throw new IllegalArgumentException("--" + key + " is required");
+        }
+        return value;
+    }
+}
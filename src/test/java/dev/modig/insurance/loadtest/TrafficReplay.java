@@ -0,0 +1,99 @@
+package dev.modig.insurance.loadtest;
+
+import dev.modig.insurance.InsuranceServiceApplication;
+import dev.modig.insurance.capture.JournalEntry;
+import dev.modig.insurance.capture.TrafficJournal;
+import dev.modig.insurance.model.PersonalNumbers;
+import dev.modig.insurance.repository.InsuranceRepository;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays a journal recorded by {@link dev.modig.insurance.capture.TrafficRecorder} against a local instance.
+ * <p>
+ * Requests are sent at their recorded times, scaled by {@code --speed}, while a {@link RecordedVehicleService}
+ * answers vehicle lookups with the recorded upstream responses. Unless {@code --target} points at a running instance
+ * (which should use the printed vehicle service URL), the application is started in-process against it. Options:
+ * <ul>
+ *   <li>{@code --journal=capture/traffic-1700000000000.journal} the journal to replay, required</li>
+ *   <li>{@code --speed=1} time scale, 2 replays twice as fast as recorded</li>
+ *   <li>{@code --vehiclePort=0} port of the recorded vehicle service</li>
+ *   <li>{@code --keys=199001011239,...} personal numbers that hashed journal entries are mapped onto, default all in
+ *   the repository. Each distinct hash always maps to the same key, so the skew of the recorded traffic is kept</li>
+ * </ul>
+ */
+public class TrafficReplay {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestArguments arguments = new LoadTestArguments(args);
+        String journal = arguments.get("journal", null);
+        if (journal == null) {
+            throw new IllegalArgumentException("--journal is required");
+        }
+
+        List<JournalEntry.Request> requests = new ArrayList<>();
+        List<JournalEntry.VehicleResponse> vehicleResponses = new ArrayList<>();
+        TrafficJournal.Header header;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Path.of(journal))))) {
+            header = TrafficJournal.readHeader(in);
+            for (JournalEntry entry = TrafficJournal.read(in); entry != null; entry = TrafficJournal.read(in)) {
+                switch (entry) {
+                    case JournalEntry.Request request -> requests.add(request);
+                    case JournalEntry.VehicleResponse response -> vehicleResponses.add(response);
+                }
+            }
+        }
+        if (requests.isEmpty()) {
+            System.out.println("No requests in " + journal);
+            return;
+        }
+
+        List<String> targetKeys = arguments.get("keys", null) == null
+                ? new InsuranceRepository().findAll().keySet().stream().sorted().toList()
+                : Arrays.asList(arguments.get("keys", null).split(","));
+        long first = requests.getFirst().offsetNanos();
+        long[] offsets = new long[requests.size()];
+        List<String> keys = new ArrayList<>(requests.size());
+        for (int i = 0; i < offsets.length; i++) {
+            JournalEntry.Request request = requests.get(i);
+            offsets[i] = request.offsetNanos() - first;
+            keys.add(header.hashed()
+                    ? targetKeys.get(Math.floorMod(request.personalNumber(), targetKeys.size()))
+                    : PersonalNumbers.format(request.personalNumber()));
+        }
+
+        String target = arguments.get("target", null);
+        ConfigurableApplicationContext application = null;
+        try (RecordedVehicleService vehicleService = RecordedVehicleService.start(arguments.getInt("vehiclePort", 0),
+                vehicleResponses, header.hashed())) {
+            System.out.println("Recorded vehicle service listening on " + vehicleService.url());
+            if (target == null) {
+                application = SpringApplication.run(InsuranceServiceApplication.class,
+                        "--server.port=0", "--vehicle.service.url=" + vehicleService.url());
+                target = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+            }
+
+            double speed = arguments.getDouble("speed", 1);
+            LoadGenerator generator = new LoadGenerator(target + "/api/v1/insurance/{key}", targetKeys,
+                    arguments.getDuration("timeout", Duration.ofSeconds(10)));
+            System.out.printf("Replaying %d requests and %d vehicle responses over %s at %.1fx against %s%n",
+                    requests.size(), vehicleResponses.size(), Duration.ofNanos(offsets[offsets.length - 1]), speed,
+                    target);
+            generator.replay(offsets, keys, speed).print(System.out);
+            System.out.printf("Recorded vehicle service: requests=%d%n", vehicleService.requests());
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package dev.modig.insurance.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An embeddable stand-in for the vehicle service at {@code vehicle.service.url}, bound to the loopback interface.
+ * <p>
+ * Every request is answered after a latency drawn from the scenario's distribution. Registration numbers are
+ * deterministically unknown (404) by hash, so the same plates keep missing across requests, while server errors are
+ * random per request. A slow start multiplies latency right after startup and tapers off, and outages make the
+ * simulator either fail fast with 503 or hang until the outage ends.
+ * <p>
+ * Can also be run on its own, for instance {@code --port=8080 --latency=lognormal:20ms:0.5 --outages=60s+10s:HANG}.
+ */
+public class VehicleServiceSimulator implements AutoCloseable {
+
+    public enum OutageMode {
+        ERROR, HANG
+    }
+
+    /**
+     * @param start    time after simulator startup when the outage begins
+     * @param duration length of the outage
+     * @param mode     how requests are answered during the outage
+     */
+    public record Outage(Duration start, Duration duration, OutageMode mode) {
+
+        /**
+         * Parses {@code 60s+10s:HANG}.
+         */
+        static Outage parse(String spec) {
+            String[] timing = spec.split(":")[0].split("\\+");
+            return new Outage(LoadTestArguments.duration(timing[0]), LoadTestArguments.duration(timing[1]),
+                    OutageMode.valueOf(spec.split(":")[1]));
+        }
+
+        boolean isActiveAt(long elapsedNanos) {
+            return elapsedNanos >= start.toNanos() && elapsedNanos < start.plus(duration).toNanos();
+        }
+    }
+
+    /**
+     * @param latency         latency of every answered request
+     * @param errorRate       share of requests answered with 500
+     * @param notFoundRatio   share of registration numbers answered with 404
+     * @param slowStart       how long the slow start lasts, zero for none
+     * @param slowStartFactor latency multiplier at startup, tapering linearly to 1 over the slow start
+     * @param outages         outage windows
+     */
+    public record Scenario(LatencyDistribution latency, double errorRate, double notFoundRatio, Duration slowStart,
+                           double slowStartFactor, List<Outage> outages) {
+
+        public static Scenario healthy(LatencyDistribution latency) {
+            return new Scenario(latency, 0, 0, Duration.ZERO, 1, List.of());
+        }
+
+        static Scenario fromArguments(LoadTestArguments arguments) {
+            List<Outage> outages = new ArrayList<>();
+            for (String outage : arguments.get("outages", "").split(",")) {
+                if (!outage.isBlank()) {
+                    outages.add(Outage.parse(outage));
+                }
+            }
+            return new Scenario(
+                    LatencyDistribution.parse(arguments.get("latency", "lognormal:20ms:0.5")),
+                    arguments.getDouble("errorRate", 0),
+                    arguments.getDouble("notFoundRatio", 0),
+                    arguments.getDuration("slowStart", Duration.ZERO),
+                    arguments.getDouble("slowStartFactor", 1),
+                    outages);
+        }
+    }
+
+    private static final String PATH = "/api/v1/vehicle";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Scenario scenario;
+    private final long startNanos;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private VehicleServiceSimulator(HttpServer server, ExecutorService executor, Scenario scenario) {
+        this.server = server;
+        this.executor = executor;
+        this.scenario = scenario;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts a simulator on the loopback interface.
+     *
+     * @param port     port to listen on, 0 for any free port
+     * @param scenario how the simulator behaves
+     * @return the running simulator
+     */
+    public static VehicleServiceSimulator start(int port, Scenario scenario) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        // Virtual threads make simulated latency a cheap sleep rather than a blocked platform thread
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        VehicleServiceSimulator simulator = new VehicleServiceSimulator(server, executor, scenario);
+        server.createContext(PATH, simulator::handle);
+        server.setExecutor(executor);
+        server.start();
+        return simulator;
+    }
+
+    /**
+     * @return the base URL to use as {@code vehicle.service.url}
+     */
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long notFound() {
+        return notFound.sum();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            long elapsed = System.nanoTime() - startNanos;
+            String path = exchange.getRequestURI().getPath();
+            String registrationNumber = path.substring(path.lastIndexOf('/') + 1);
+
+            for (Outage outage : scenario.outages()) {
+                if (outage.isActiveAt(elapsed)) {
+                    if (outage.mode() == OutageMode.HANG) {
+                        sleep(outage.start().plus(outage.duration()).toNanos() - elapsed);
+                    }
+                    errors.increment();
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                }
+            }
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            sleep((long) (scenario.latency().sampleNanos(random) * slowStartMultiplier(elapsed)));
+
+            if (random.nextDouble() < scenario.errorRate()) {
+                errors.increment();
+                exchange.sendResponseHeaders(500, -1);
+            } else if (isUnknown(registrationNumber)) {
+                notFound.increment();
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                byte[] body = ("{\"registrationNumber\":\"" + registrationNumber
+                        + "\",\"make\":\"Volvo\",\"model\":\"XC90\",\"year\":2020}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        }
+    }
+
+    private double slowStartMultiplier(long elapsedNanos) {
+        long slowStart = scenario.slowStart().toNanos();
+        if (elapsedNanos >= slowStart) {
+            return 1;
+        }
+        return 1 + (scenario.slowStartFactor() - 1) * (1 - (double) elapsedNanos / slowStart);
+    }
+
+    private boolean isUnknown(String registrationNumber) {
+        return Math.floorMod(registrationNumber.hashCode() * 0x9E3779B9, 10_000) < scenario.notFoundRatio() * 10_000;
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadTestArguments arguments = new LoadTestArguments(args);
+        try (VehicleServiceSimulator simulator = start(arguments.getInt("port", 8080),
+                Scenario.fromArguments(arguments))) {
+            System.out.println("Vehicle service simulator listening on " + simulator.url());
+            Thread.currentThread().join();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package dev.modig.insurance.metrics;
+
+import dev.modig.insurance.config.TimingProperties;
+import dev.modig.insurance.metrics.InsuranceMetrics.VehicleOutcome;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTimingsTest {
+
+    @Test
+    void shouldCollectStagesRecordedOnTheRequestThread() {
+        RequestTimings timings = new RequestTimings(new TimingProperties(true, null, 0));
+
+        RequestTiming timing = timings.begin();
+        timings.recordValidation(4_000);
+        timings.recordRepositoryLookup(2_000);
+        timings.recordVehicleFetch("ABC123", VehicleOutcome.OK, 12_000_000);
+        timings.recordToggleEvaluation(1_000);
+        timings.recordToggleEvaluation(1_000);
+        timings.end(timing, "/api/v1/insurance/{personalNumber}", 200);
+
+        List<String> names = timing.stages().stream().map(RequestTiming.Stage::name).toList();
+        assertEquals(List.of("validation", "repository", "vehicle", "toggle", "total"), names);
+        assertTrue(timing.serverTimingHeader().startsWith(
+                "validation;dur=0.004, repository;dur=0.002, vehicle;desc=\"ABC123 ok\";dur=12.0, "
+                        + "toggle;desc=\"2 evaluations\";dur=0.002, total;dur="));
+    }
+
+    @Test
+    void shouldIgnoreStagesOutsideATimedRequest() {
+        RequestTimings timings = new RequestTimings(new TimingProperties(true, null, 0));
+
+        RequestTiming timing = timings.begin();
+        timings.end(timing, "/", 200);
+        timings.recordRepositoryLookup(2_000);
+
+        assertEquals(List.of("total"), timing.stages().stream().map(RequestTiming.Stage::name).toList());
+    }
+
+    @Test
+    void shouldKeepOnlyTheNewestSlowRequests() {
+        RequestTimings timings = new RequestTimings(new TimingProperties(false, Duration.ZERO, 4));
+
+        for (int i = 0; i < 10; i++) {
+            timings.end(timings.begin(), "/request/" + i, 200);
+        }
+
+        List<String> routes = timings.slowRequests().stream().map(RequestTimings.SlowRequest::route).toList();
+        assertEquals(List.of("/request/9", "/request/8", "/request/7", "/request/6"), routes);
+    }
+
+    @Test
+    void shouldNotKeepRequestsBelowThreshold() {
+        RequestTimings timings = new RequestTimings(new TimingProperties(false, Duration.ofMinutes(1), 4));
+
+        timings.end(timings.begin(), "/fast", 200);
+
+        assertTrue(timings.slowRequests().isEmpty());
+    }
+
+    @Test
+    void shouldBeDisabledByDefault() {
+        RequestTimings timings = RequestTimings.disabled();
+
+        assertFalse(timings.isEnabled());
+        assertTrue(timings.slowRequests().isEmpty());
+    }
+}
@@ -0,0 +1,46 @@
+package dev.modig.insurance.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersonalNumbersTest {
+
+    @Test
+    void shouldParseWithAndWithoutDash() {
+        assertEquals(199001011239L, PersonalNumbers.parse("199001011239"));
+        assertEquals(199001011239L, PersonalNumbers.parse("19900101-1239"));
+    }
+
+    @Test
+    void shouldRejectInvalidChecksum() {
+        assertEquals(PersonalNumbers.INVALID, PersonalNumbers.parse("19900101-1234"));
+    }
+
+    @Test
+    void shouldRejectInvalidDates() {
+        assertEquals(PersonalNumbers.INVALID, PersonalNumbers.parse("19901301-1235"));
+        assertEquals(PersonalNumbers.INVALID, PersonalNumbers.parse("19900230-1233"));
+        assertEquals(PersonalNumbers.INVALID, PersonalNumbers.parse("19000229-1235"));
+    }
+
+    @Test
+    void shouldAcceptLeapDayAndCoordinationNumbers() {
+        assertEquals(200002291235L, PersonalNumbers.parse("20000229-1235"));
+        assertEquals(199001611236L, PersonalNumbers.parse("19900161-1236"));
+    }
+
+    @Test
+    void shouldRejectMalformedInput() {
+        assertEquals(PersonalNumbers.INVALID, PersonalNumbers.parse("invalid-input"));
+        assertEquals(PersonalNumbers.INVALID, PersonalNumbers.parse("9001011239"));
+        assertEquals(PersonalNumbers.INVALID, PersonalNumbers.parse("1990010-11239"));
+        assertEquals(PersonalNumbers.INVALID, PersonalNumbers.parse("1990010112390"));
+        assertEquals(PersonalNumbers.INVALID, PersonalNumbers.parse(""));
+    }
+
+    @Test
+    void shouldFormatKeyAsTwelveDigits() {
+        assertEquals("199001011239", PersonalNumbers.format(199001011239L));
+    }
+}
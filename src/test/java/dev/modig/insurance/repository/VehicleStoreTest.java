@@ -0,0 +1,139 @@
+package dev.modig.insurance.repository;
+
+import dev.modig.insurance.config.VehicleStoreProperties;
+import dev.modig.insurance.model.Vehicle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleStoreTest {
+
+    private static final Vehicle VOLVO = new Vehicle("ABC123", "Volvo", "XC90", 2020);
+    private static final Vehicle SAAB = new Vehicle("XYZ789", "Saab", null, 1990);
+
+    @TempDir
+    Path directory;
+
+    private VehicleStore open(Duration ttl, Duration staleRetention, long segmentBytes) {
+        return new VehicleStore(new VehicleStoreProperties(true, directory, ttl, staleRetention, segmentBytes));
+    }
+
+    @Test
+    void shouldReopenStoredVehicles() throws Exception {
+        try (VehicleStore store = open(Duration.ofHours(1), null, 0)) {
+            store.put("ABC123", VOLVO);
+            store.put("XYZ789", SAAB);
+        }
+
+        try (VehicleStore store = open(Duration.ofHours(1), null, 0)) {
+            assertEquals(2, store.size());
+            assertEquals(VOLVO, store.get("ABC123").vehicle());
+            assertEquals(SAAB, store.get("XYZ789").vehicle());
+            assertTrue(store.get("ABC123").isFresh(System.currentTimeMillis()));
+        }
+    }
+
+    @Test
+    void shouldKeepLatestVehicleForRegistrationNumber() throws Exception {
+        Vehicle repainted = new Vehicle("ABC123", "Volvo", "XC60", 2021);
+        try (VehicleStore store = open(Duration.ofHours(1), null, 0)) {
+            store.put("ABC123", VOLVO);
+            store.put("ABC123", repainted);
+        }
+
+        try (VehicleStore store = open(Duration.ofHours(1), null, 0)) {
+            assertEquals(repainted, store.get("ABC123").vehicle());
+        }
+    }
+
+    @Test
+    void shouldKeepExpiredVehiclesUntilStaleRetentionPasses() throws Exception {
+        try (VehicleStore store = open(Duration.ZERO, Duration.ofDays(1), 0)) {
+            store.put("ABC123", VOLVO);
+            assertFalse(store.get("ABC123").isFresh(System.currentTimeMillis()));
+        }
+        try (VehicleStore store = open(Duration.ZERO, Duration.ofDays(1), 0)) {
+            assertEquals(VOLVO, store.get("ABC123").vehicle());
+        }
+
+        try (VehicleStore store = open(Duration.ZERO, Duration.ZERO, 0)) {
+            Thread.sleep(2);
+            store.compact();
+            assertNull(store.get("ABC123"));
+        }
+    }
+
+    @Test
+    void shouldNotReturnVehiclesPastStaleRetentionBeforeCompaction() throws Exception {
+        try (VehicleStore store = open(Duration.ZERO, Duration.ZERO, 0)) {
+            store.put("ABC123", VOLVO);
+            Thread.sleep(2);
+
+            assertNull(store.get("ABC123"));
+        }
+    }
+
+    @Test
+    void shouldCompactIntoSingleSegment() throws Exception {
+        try (VehicleStore store = open(Duration.ofHours(1), null, 64)) {
+            for (int i = 0; i < 20; i++) {
+                store.put("ABC123", new Vehicle("ABC123", "Volvo", "XC90", 2000 + i));
+            }
+            store.flush();
+            assertEquals(1, segments().size());
+            assertTrue(Files.size(segments().getFirst()) < 20 * 30);
+        }
+
+        try (VehicleStore store = open(Duration.ofHours(1), null, 64)) {
+            assertEquals(2019, store.get("ABC123").vehicle().year());
+        }
+    }
+
+    @Test
+    void shouldWriteStoredVehiclesInTheBackground() throws Exception {
+        try (VehicleStore store = open(Duration.ofHours(1), null, 0)) {
+            store.put("ABC123", VOLVO);
+            assertEquals(VOLVO, store.get("ABC123").vehicle());
+
+            store.flush();
+            assertTrue(Files.size(segments().getFirst()) > 0);
+        }
+    }
+
+    @Test
+    void shouldIgnoreTornRecordAtEndOfSegment() throws Exception {
+        try (VehicleStore store = open(Duration.ofHours(1), null, 0)) {
+            store.put("ABC123", VOLVO);
+        }
+        Files.write(segments().getFirst(), new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        try (VehicleStore store = open(Duration.ofHours(1), null, 0)) {
+            assertEquals(1, store.size());
+            assertEquals(VOLVO, store.get("ABC123").vehicle());
+        }
+    }
+
+    @Test
+    void shouldStoreNothingWhenDisabled() {
+        VehicleStore store = VehicleStore.disabled();
+
+        store.put("ABC123", VOLVO);
+
+        assertNull(store.get("ABC123"));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+}
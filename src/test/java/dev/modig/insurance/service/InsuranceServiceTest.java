@@ -1,17 +1,31 @@
 package dev.modig.insurance.service;
 
+import dev.modig.insurance.capture.TrafficRecorder;
+import dev.modig.insurance.config.PricingProperties;
+import dev.modig.insurance.config.VehicleStoreProperties;
 import dev.modig.insurance.dto.PersonInsuranceResponse;
+import dev.modig.insurance.metrics.InsuranceMetrics;
+import dev.modig.insurance.metrics.RequestTimings;
 import dev.modig.insurance.exception.InsuranceNotFoundException;
-import dev.modig.insurance.exception.VehicleNotFoundException;
 import dev.modig.insurance.model.*;
 import dev.modig.insurance.repository.InsuranceRepository;
+import dev.modig.insurance.repository.VehicleStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,6 +36,7 @@ public class InsuranceServiceTest {
     private ToggleService toggleService;
     private WebClient vehicleWebClient;
     private InsuranceService insuranceService;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
@@ -29,27 +44,25 @@ public class InsuranceServiceTest {
         toggleService = mock(ToggleService.class);
         vehicleWebClient = mock(WebClient.class, RETURNS_DEEP_STUBS);
 
-        insuranceService = new InsuranceService(repository, vehicleWebClient, toggleService);
+        PricingEngine pricingEngine = new PricingEngine(new PricingProperties(null, null,
+                List.of(new PricingProperties.CampaignDiscount("DISCOUNT_CAMPAIGN", 10)), null));
+
+        meterRegistry = new SimpleMeterRegistry();
+
+        insuranceService = new InsuranceService(repository, vehicleWebClient, toggleService, pricingEngine,
+                new InsuranceMetrics(meterRegistry, RequestTimings.disabled()), TrafficRecorder.disabled(),
+                VehicleStore.disabled(), Duration.ofSeconds(2));
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
     @Test
     void shouldReturnResponseWithEnrichedCarInsuranceAndDiscount() {
         String personalNumber = "199001011234";
         CarInsurance insurance = CarInsurance.carInsurance("ABC123");
         Vehicle vehicle = new Vehicle("ABC123", "Volvo", "XC90", 2020);
 
-        WebClient.RequestHeadersUriSpec uriSpecMock = mock(WebClient.RequestHeadersUriSpec.class);
-        WebClient.RequestHeadersSpec headersSpecMock = mock(WebClient.RequestHeadersSpec.class);
-        WebClient.ResponseSpec responseSpecMock = mock(WebClient.ResponseSpec.class);
-
-        when(vehicleWebClient.get()).thenReturn(uriSpecMock);
-        when(uriSpecMock.uri(("/{registrationNumber}"), ("ABC123"))).thenReturn(headersSpecMock);
-        when(headersSpecMock.retrieve()).thenReturn(responseSpecMock);
-        when(responseSpecMock.onStatus(any(), any())).thenReturn(responseSpecMock);
-        when(responseSpecMock.bodyToMono(Vehicle.class)).thenReturn(Mono.just(vehicle));
+        stubVehicleResponse("ABC123", HttpStatus.OK, vehicle);
         when(repository.findByPersonalNumber(personalNumber)).thenReturn(Optional.of(List.of(insurance)));
-        when(toggleService.isDiscountEnabledFor(personalNumber)).thenReturn(true);
+        when(toggleService.isEnabledFor("DISCOUNT_CAMPAIGN", personalNumber)).thenReturn(true);
 
         PersonInsuranceResponse response = insuranceService.getInsurancesFor(personalNumber);
 
@@ -67,13 +80,8 @@ public class InsuranceServiceTest {
         CarInsurance insurance = CarInsurance.carInsurance("ABC123");
 
         when(repository.findByPersonalNumber(personalNumber)).thenReturn(Optional.of(List.of(insurance)));
-        when(vehicleWebClient.get()
-                .uri("/ABC123", "ABC123")
-                .retrieve()
-                .onStatus(any(), any())
-                .bodyToMono(Vehicle.class)
-        ).thenReturn(Mono.error(new VehicleNotFoundException("Vehicle not found")));
-        when(toggleService.isDiscountEnabledFor(personalNumber)).thenReturn(false);
+        stubVehicleResponse("ABC123", HttpStatus.NOT_FOUND, null);
+        when(toggleService.isEnabledFor("DISCOUNT_CAMPAIGN", personalNumber)).thenReturn(false);
 
         PersonInsuranceResponse response = insuranceService.getInsurancesFor(personalNumber);
 
@@ -86,7 +94,6 @@ public class InsuranceServiceTest {
         assertNull(response.discountedTotalCost());
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
     @Test
     void shouldReturnResponseWithMultipleInsurancesAndApplyDiscount() {
         String personalNumber = "199012319999";
@@ -96,18 +103,10 @@ public class InsuranceServiceTest {
         PetInsurance petInsurance = new PetInsurance();
         Vehicle vehicle = new Vehicle("CAR123", "Tesla", "Model 3", 2023);
 
-        WebClient.RequestHeadersUriSpec uriSpecMock = mock(WebClient.RequestHeadersUriSpec.class);
-        WebClient.RequestHeadersSpec headersSpecMock = mock(WebClient.RequestHeadersSpec.class);
-        WebClient.ResponseSpec responseSpecMock = mock(WebClient.ResponseSpec.class);
-
-        when(vehicleWebClient.get()).thenReturn(uriSpecMock);
-        when(uriSpecMock.uri(("/{registrationNumber}"), ("CAR123"))).thenReturn(headersSpecMock);
-        when(headersSpecMock.retrieve()).thenReturn(responseSpecMock);
-        when(responseSpecMock.onStatus(any(), any())).thenReturn(responseSpecMock);
-        when(responseSpecMock.bodyToMono(Vehicle.class)).thenReturn(Mono.just(vehicle));
+        stubVehicleResponse("CAR123", HttpStatus.OK, vehicle);
         when(repository.findByPersonalNumber(personalNumber))
                 .thenReturn(Optional.of(List.of(carInsurance, healthInsurance, petInsurance)));
-        when(toggleService.isDiscountEnabledFor(personalNumber)).thenReturn(true);
+        when(toggleService.isEnabledFor("DISCOUNT_CAMPAIGN", personalNumber)).thenReturn(true);
 
         PersonInsuranceResponse response = insuranceService.getInsurancesFor(personalNumber);
 
@@ -127,6 +126,37 @@ public class InsuranceServiceTest {
         assertEquals(vehicle, resultCar.vehicle());
     }
 
+    @Test
+    void shouldReportConfiguredRatesOnEveryItem() {
+        String personalNumber = "199012319999";
+        when(repository.findByPersonalNumber(personalNumber))
+                .thenReturn(Optional.of(List.of(new HealthInsurance(), new PetInsurance())));
+        insuranceService = new InsuranceService(repository, vehicleWebClient, toggleService,
+                new PricingEngine(new PricingProperties(Map.of(InsuranceType.HEALTH, 25), null, null, null)),
+                new InsuranceMetrics(meterRegistry, RequestTimings.disabled()), TrafficRecorder.disabled(),
+                VehicleStore.disabled(), Duration.ofSeconds(2));
+
+        PersonInsuranceResponse response = insuranceService.getInsurancesFor(personalNumber);
+
+        assertEquals(List.of(new HealthInsurance(25), new PetInsurance()), response.insurances());
+        assertEquals(response.insurances().stream().mapToInt(Insurance::monthlyCost).sum(), response.totalCost());
+    }
+
+    @Test
+    void shouldRepriceBookWithoutPerRequestToggleEvaluation() {
+        when(repository.findAll()).thenReturn(Map.of(
+                "199001011234", List.of(new HealthInsurance()),
+                "198001019999", List.of(new PetInsurance())));
+        when(toggleService.enabledAmong(eq("DISCOUNT_CAMPAIGN"), anyList())).thenReturn(Set.of("199001011234"));
+
+        Map<String, PricingEngine.Quote> quotes = insuranceService.repriceAll();
+
+        assertEquals(new PricingEngine.Quote(20, 18), quotes.get("199001011234"));
+        assertEquals(new PricingEngine.Quote(10, null), quotes.get("198001019999"));
+        verify(toggleService, never()).isEnabledFor(anyString(), anyString());
+        assertEquals(0, meterRegistry.get("insurance.toggle.evaluation").timer().count());
+    }
+
     @Test
     void shouldThrowInsuranceNotFoundExceptionWhenNoInsuranceExists() {
         String personalNumber = "no-insurance";
@@ -141,7 +171,7 @@ public class InsuranceServiceTest {
         HealthInsurance insurance = new HealthInsurance();
 
         when(repository.findByPersonalNumber(personalNumber)).thenReturn(Optional.of(List.of(insurance)));
-        when(toggleService.isDiscountEnabledFor(personalNumber)).thenReturn(false);
+        when(toggleService.isEnabledFor("DISCOUNT_CAMPAIGN", personalNumber)).thenReturn(false);
 
         PersonInsuranceResponse response = insuranceService.getInsurancesFor(personalNumber);
 
@@ -155,13 +185,8 @@ public class InsuranceServiceTest {
         CarInsurance insurance = CarInsurance.carInsurance("ABC123");
 
         when(repository.findByPersonalNumber(personalNumber)).thenReturn(Optional.of(List.of(insurance)));
-        when(vehicleWebClient.get()
-                .uri("/ABC123", "ABC123")
-                .retrieve()
-                .onStatus(any(), any())
-                .bodyToMono(Vehicle.class)
-        ).thenReturn(Mono.error(new RuntimeException("Service unavailable")));
-        when(toggleService.isDiscountEnabledFor(personalNumber)).thenReturn(false);
+        stubVehicleResponse("ABC123", HttpStatus.SERVICE_UNAVAILABLE, null);
+        when(toggleService.isEnabledFor("DISCOUNT_CAMPAIGN", personalNumber)).thenReturn(false);
 
         PersonInsuranceResponse response = insuranceService.getInsurancesFor(personalNumber);
 
@@ -169,5 +194,192 @@ public class InsuranceServiceTest {
         assertNull(result.vehicle());
     }
 
-}
+    @Test
+    void shouldLookUpParsedKeyWithoutParsingAgain() {
+        when(repository.findByPersonalNumber(199001011234L)).thenReturn(Optional.of(List.of(new HealthInsurance())));
+
+        InsuranceLookup lookup = insuranceService.findInsurancesFor(199001011234L);
+
+        InsuranceLookup.Found found = assertInstanceOf(InsuranceLookup.Found.class, lookup);
+        assertEquals("199001011234", found.response().personalNumber());
+        verify(repository, never()).findByPersonalNumber(anyString());
+    }
 
+    @Test
+    void shouldReturnDegradedWhenVehicleServiceIsDown() {
+        String personalNumber = "199001011234";
+        CarInsurance insurance = CarInsurance.carInsurance("ABC123");
+
+        when(repository.findByPersonalNumber(personalNumber)).thenReturn(Optional.of(List.of(insurance)));
+        stubVehicleResponse("ABC123", HttpStatus.INTERNAL_SERVER_ERROR, null);
+
+        InsuranceLookup lookup = insuranceService.findInsurancesFor(personalNumber);
+
+        InsuranceLookup.Degraded degraded = assertInstanceOf(InsuranceLookup.Degraded.class, lookup);
+        assertNull(((CarInsurance) degraded.response().insurances().getFirst()).vehicle());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Test
+    void shouldReturnDegradedWhenVehicleServiceIsUnreachable() {
+        String personalNumber = "199001011234";
+        CarInsurance insurance = CarInsurance.carInsurance("ABC123");
+
+        WebClient.RequestHeadersUriSpec uriSpecMock = mock(WebClient.RequestHeadersUriSpec.class);
+        WebClient.RequestHeadersSpec headersSpecMock = mock(WebClient.RequestHeadersSpec.class);
+        when(vehicleWebClient.get()).thenReturn(uriSpecMock);
+        when(uriSpecMock.uri("/{registrationNumber}", "ABC123")).thenReturn(headersSpecMock);
+        when(headersSpecMock.exchangeToMono(any())).thenReturn(Mono.error(new RuntimeException("Connection refused")));
+        when(repository.findByPersonalNumber(personalNumber)).thenReturn(Optional.of(List.of(insurance)));
+
+        assertInstanceOf(InsuranceLookup.Degraded.class, insuranceService.findInsurancesFor(personalNumber));
+        assertEquals(1, meterRegistry.get("insurance.vehicle.fetch").tag("outcome", "error").timer().count());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Test
+    void shouldReturnDegradedWhenVehicleServiceTimesOut() {
+        String personalNumber = "199001011234";
+        CarInsurance insurance = CarInsurance.carInsurance("ABC123");
+
+        insuranceService = new InsuranceService(repository, vehicleWebClient, toggleService,
+                new PricingEngine(new PricingProperties(null, null, null, null)),
+                new InsuranceMetrics(meterRegistry, RequestTimings.disabled()), TrafficRecorder.disabled(),
+                VehicleStore.disabled(), Duration.ofMillis(10));
+        WebClient.RequestHeadersUriSpec uriSpecMock = mock(WebClient.RequestHeadersUriSpec.class);
+        WebClient.RequestHeadersSpec headersSpecMock = mock(WebClient.RequestHeadersSpec.class);
+        when(vehicleWebClient.get()).thenReturn(uriSpecMock);
+        when(uriSpecMock.uri("/{registrationNumber}", "ABC123")).thenReturn(headersSpecMock);
+        when(headersSpecMock.exchangeToMono(any())).thenReturn(Mono.never());
+        when(repository.findByPersonalNumber(personalNumber)).thenReturn(Optional.of(List.of(insurance)));
+
+        assertInstanceOf(InsuranceLookup.Degraded.class, insuranceService.findInsurancesFor(personalNumber));
+        assertEquals(1, meterRegistry.get("insurance.vehicle.fetch").tag("outcome", "timeout").timer().count());
+        assertEquals(1, meterRegistry.get("insurance.enrichment.fallbacks").counter().count());
+    }
+
+    @Test
+    void shouldRecordStageMetrics() {
+        String personalNumber = "199001011234";
+        CarInsurance insurance = CarInsurance.carInsurance("ABC123");
+
+        when(repository.findByPersonalNumber(personalNumber)).thenReturn(Optional.of(List.of(insurance)));
+        stubVehicleResponse("ABC123", HttpStatus.OK, new Vehicle("ABC123", "Volvo", "XC90", 2020));
+        when(toggleService.isEnabledFor("DISCOUNT_CAMPAIGN", personalNumber)).thenReturn(true);
+
+        insuranceService.findInsurancesFor(personalNumber);
+
+        assertEquals(1, meterRegistry.get("insurance.repository.lookup").timer().count());
+        assertEquals(1, meterRegistry.get("insurance.vehicle.fetch").tag("outcome", "ok").timer().count());
+        assertEquals(1, meterRegistry.get("insurance.toggle.evaluation").timer().count());
+        assertEquals(1, meterRegistry.get("insurance.request").tag("outcome", "found").timer().count());
+        assertEquals(1, meterRegistry.get("insurance.discounts.applied").counter().count());
+    }
+
+    @Test
+    void shouldReturnFoundWhenVehicleIsUnknown() {
+        String personalNumber = "199001011234";
+        CarInsurance insurance = CarInsurance.carInsurance("ABC123");
+
+        when(repository.findByPersonalNumber(personalNumber)).thenReturn(Optional.of(List.of(insurance)));
+        stubVehicleResponse("ABC123", HttpStatus.NOT_FOUND, null);
+
+        assertInstanceOf(InsuranceLookup.Found.class, insuranceService.findInsurancesFor(personalNumber));
+    }
+
+    @Test
+    void shouldReturnNotFoundWithoutThrowingWhenNoInsuranceExists() {
+        String personalNumber = "no-insurance";
+        when(repository.findByPersonalNumber(personalNumber)).thenReturn(Optional.empty());
+
+        assertSame(InsuranceLookup.NOT_FOUND, insuranceService.findInsurancesFor(personalNumber));
+    }
+
+    @Test
+    void shouldServeFreshStoredVehicleWithoutCallingVehicleService(@TempDir Path directory) throws Exception {
+        String personalNumber = "199001011234";
+        Vehicle vehicle = new Vehicle("ABC123", "Volvo", "XC90", 2020);
+        try (VehicleStore store = vehicleStore(directory, Duration.ofHours(1))) {
+            store.put("ABC123", vehicle);
+            insuranceService = serviceWith(store);
+            when(repository.findByPersonalNumber(personalNumber))
+                    .thenReturn(Optional.of(List.of(CarInsurance.carInsurance("ABC123"))));
+
+            InsuranceLookup lookup = insuranceService.findInsurancesFor(personalNumber);
+
+            assertInstanceOf(InsuranceLookup.Found.class, lookup);
+            CarInsurance car = (CarInsurance) ((InsuranceLookup.Found) lookup).response().insurances().getFirst();
+            assertEquals(vehicle, car.vehicle());
+            verify(vehicleWebClient, never()).get();
+            assertEquals(1, meterRegistry.get("insurance.vehicle.store.hits").counter().count());
+        }
+    }
+
+    @Test
+    void shouldServeExpiredStoredVehicleWhenVehicleServiceFails(@TempDir Path directory) throws Exception {
+        String personalNumber = "199001011234";
+        Vehicle vehicle = new Vehicle("ABC123", "Volvo", "XC90", 2020);
+        try (VehicleStore store = vehicleStore(directory, Duration.ZERO)) {
+            insuranceService = serviceWith(store);
+            when(repository.findByPersonalNumber(personalNumber))
+                    .thenReturn(Optional.of(List.of(CarInsurance.carInsurance("ABC123"))));
+            stubVehicleResponse("ABC123", HttpStatus.OK, vehicle);
+            insuranceService.findInsurancesFor(personalNumber);
+
+            stubVehicleResponse("ABC123", HttpStatus.SERVICE_UNAVAILABLE, null);
+            InsuranceLookup lookup = insuranceService.findInsurancesFor(personalNumber);
+
+            assertInstanceOf(InsuranceLookup.Found.class, lookup);
+            CarInsurance car = (CarInsurance) ((InsuranceLookup.Found) lookup).response().insurances().getFirst();
+            assertEquals(vehicle, car.vehicle());
+            assertEquals(1, meterRegistry.get("insurance.vehicle.store.stale").counter().count());
+            assertEquals(0, meterRegistry.get("insurance.enrichment.fallbacks").counter().count());
+        }
+    }
+
+    @Test
+    void shouldNotServeVehiclePastStaleRetention(@TempDir Path directory) throws Exception {
+        String personalNumber = "199001011234";
+        try (VehicleStore store = new VehicleStore(
+                new VehicleStoreProperties(true, directory, Duration.ZERO, Duration.ZERO, 0))) {
+            store.put("ABC123", new Vehicle("ABC123", "Volvo", "XC90", 2020));
+            insuranceService = serviceWith(store);
+            when(repository.findByPersonalNumber(personalNumber))
+                    .thenReturn(Optional.of(List.of(CarInsurance.carInsurance("ABC123"))));
+            stubVehicleResponse("ABC123", HttpStatus.SERVICE_UNAVAILABLE, null);
+            Thread.sleep(2);
+
+            InsuranceLookup lookup = insuranceService.findInsurancesFor(personalNumber);
+
+            InsuranceLookup.Degraded degraded = assertInstanceOf(InsuranceLookup.Degraded.class, lookup);
+            assertNull(((CarInsurance) degraded.response().insurances().getFirst()).vehicle());
+            assertEquals(0, meterRegistry.get("insurance.vehicle.store.stale").counter().count());
+        }
+    }
+
+    private static VehicleStore vehicleStore(Path directory, Duration ttl) {
+        return new VehicleStore(new VehicleStoreProperties(true, directory, ttl, Duration.ofDays(7), 0));
+    }
+
+    private InsuranceService serviceWith(VehicleStore store) {
+        return new InsuranceService(repository, vehicleWebClient, toggleService,
+                new PricingEngine(new PricingProperties(null, null, null, null)),
+                new InsuranceMetrics(meterRegistry, RequestTimings.disabled()), TrafficRecorder.disabled(),
+                store, Duration.ofSeconds(2));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void stubVehicleResponse(String registrationNumber, HttpStatus status, Vehicle vehicle) {
+        WebClient.RequestHeadersUriSpec uriSpecMock = mock(WebClient.RequestHeadersUriSpec.class);
+        WebClient.RequestHeadersSpec headersSpecMock = mock(WebClient.RequestHeadersSpec.class);
+        ClientResponse clientResponse = mock(ClientResponse.class);
+
+        when(vehicleWebClient.get()).thenReturn(uriSpecMock);
+        when(uriSpecMock.uri("/{registrationNumber}", registrationNumber)).thenReturn(headersSpecMock);
+        when(clientResponse.statusCode()).thenReturn(status);
+        when(clientResponse.bodyToMono(Vehicle.class)).thenReturn(vehicle == null ? Mono.empty() : Mono.just(vehicle));
+        when(clientResponse.releaseBody()).thenReturn(Mono.empty());
+        when(headersSpecMock.exchangeToMono(any())).thenAnswer(invocation ->
+                ((Function<ClientResponse, Mono<?>>) invocation.getArgument(0)).apply(clientResponse));
+    }
+}
@@ -0,0 +1,113 @@
+package dev.modig.insurance.service;
+
+import dev.modig.insurance.config.PricingProperties;
+import dev.modig.insurance.model.CarInsurance;
+import dev.modig.insurance.model.HealthInsurance;
+import dev.modig.insurance.model.Insurance;
+import dev.modig.insurance.model.InsuranceType;
+import dev.modig.insurance.model.PetInsurance;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingEngineTest {
+
+    private static final List<Insurance> BUNDLE = List.of(
+            new HealthInsurance(), new PetInsurance(), CarInsurance.carInsurance("ABC123"));
+    private static final PricingEngine.CampaignEligibility ALL = (feature, personalNumber) -> true;
+    private static final PricingEngine.CampaignEligibility NONE = (feature, personalNumber) -> false;
+
+    @Test
+    void shouldUseInsuranceTypeCostsWhenNoRulesAreConfigured() {
+        PricingEngine engine = new PricingEngine(new PricingProperties(null, null, null, null));
+
+        PricingEngine.Quote quote = engine.price(BUNDLE, "199001011234", ALL);
+
+        assertEquals(60, quote.totalCost());
+        assertNull(quote.discountedTotalCost());
+    }
+
+    @Test
+    void shouldApplyConfiguredRates() {
+        PricingEngine engine = new PricingEngine(new PricingProperties(
+                Map.of(InsuranceType.CAR, 50), null, null, null));
+
+        assertEquals(80, engine.price(BUNDLE, "199001011234", NONE).totalCost());
+    }
+
+    @Test
+    void shouldRateItemsWithConfiguredRates() {
+        PricingEngine engine = new PricingEngine(new PricingProperties(
+                Map.of(InsuranceType.CAR, 50), null, null, null));
+        HealthInsurance health = new HealthInsurance();
+
+        assertEquals(50, engine.rate(CarInsurance.carInsurance("ABC123")).monthlyCost());
+        assertSame(health, engine.rate(health));
+    }
+
+    @Test
+    void shouldApplyHighestQualifyingBundleTier() {
+        PricingEngine engine = new PricingEngine(new PricingProperties(null, List.of(
+                new PricingProperties.BundleDiscount(2, 5),
+                new PricingProperties.BundleDiscount(3, 10)), null, null));
+
+        assertEquals(54, engine.price(BUNDLE, "199001011234", NONE).discountedTotalCost());
+        assertEquals(29, engine.price(BUNDLE.subList(0, 2), "199001011234", NONE).discountedTotalCost());
+        assertNull(engine.price(BUNDLE.subList(0, 1), "199001011234", NONE).discountedTotalCost());
+    }
+
+    @Test
+    void shouldApplyCampaignOnlyWhenEligible() {
+        PricingEngine engine = new PricingEngine(new PricingProperties(null, null, List.of(
+                new PricingProperties.CampaignDiscount("A", 10),
+                new PricingProperties.CampaignDiscount("B", 50)), null));
+
+        PricingEngine.Quote quote = engine.price(BUNDLE, "199001011234", (feature, personalNumber) -> feature.equals("A"));
+
+        assertEquals(54, quote.discountedTotalCost());
+    }
+
+    @Test
+    void shouldStackDiscountsMultiplicatively() {
+        PricingEngine engine = new PricingEngine(new PricingProperties(null,
+                List.of(new PricingProperties.BundleDiscount(3, 10)),
+                List.of(new PricingProperties.CampaignDiscount("A", 50)),
+                PricingProperties.Stacking.MULTIPLICATIVE));
+
+        assertEquals(27, engine.price(BUNDLE, "199001011234", ALL).discountedTotalCost());
+    }
+
+    @Test
+    void shouldApplyOnlyBestDiscountWhenConfigured() {
+        PricingEngine engine = new PricingEngine(new PricingProperties(null,
+                List.of(new PricingProperties.BundleDiscount(3, 10)),
+                List.of(new PricingProperties.CampaignDiscount("A", 50)),
+                PricingProperties.Stacking.BEST_ONLY));
+
+        assertEquals(30, engine.price(BUNDLE, "199001011234", ALL).discountedTotalCost());
+    }
+
+    @Test
+    void shouldPriceWholeBook() {
+        PricingEngine engine = new PricingEngine(new PricingProperties(null, null,
+                List.of(new PricingProperties.CampaignDiscount("A", 10)), null));
+
+        Map<String, PricingEngine.Quote> quotes = engine.priceAll(Map.of(
+                "199001011234", BUNDLE,
+                "190101010015", List.of(new PetInsurance())), (feature, personalNumber) -> personalNumber.startsWith("1990"));
+
+        assertEquals(new PricingEngine.Quote(60, 54), quotes.get("199001011234"));
+        assertEquals(new PricingEngine.Quote(10, null), quotes.get("190101010015"));
+    }
+
+    @Test
+    void shouldRejectInvalidDiscount() {
+        PricingProperties properties = new PricingProperties(null, null,
+                List.of(new PricingProperties.CampaignDiscount("A", 150)), null);
+
+        assertThrows(IllegalArgumentException.class, () -> new PricingEngine(properties));
+    }
+}
@@ -0,0 +1,97 @@
+package dev.modig.insurance.service;
+
+import dev.modig.insurance.config.RolloutProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RolloutEngineTest {
+
+    private static final List<String> USERS = IntStream.range(0, 100_000)
+            .mapToObj(i -> String.format("19%010d", i))
+            .toList();
+
+    private static RolloutEngine engine(Map<String, RolloutProperties.Campaign> campaigns) {
+        return new RolloutEngine(new RolloutProperties(campaigns));
+    }
+
+    @Test
+    void shouldBucketUsersStablyAcrossInstances() {
+        RolloutEngine first = engine(Map.of("A", new RolloutProperties.Campaign(20, null)));
+        RolloutEngine second = engine(Map.of("A", new RolloutProperties.Campaign(20, null)));
+
+        assertEquals(first.evaluate("A", USERS), second.evaluate("A", USERS));
+    }
+
+    @Test
+    void shouldIncludeRoughlyConfiguredPercentage() {
+        RolloutEngine engine = engine(Map.of("A", new RolloutProperties.Campaign(20, null)));
+
+        long included = engine.countInRollout("A", USERS);
+
+        assertEquals(20_000, included, 1_000);
+        assertEquals(included, engine.evaluate("A", USERS).cardinality());
+    }
+
+    @Test
+    void shouldBucketFeaturesIndependently() {
+        RolloutEngine engine = engine(Map.of(
+                "A", new RolloutProperties.Campaign(50, null),
+                "B", new RolloutProperties.Campaign(50, null)));
+
+        BitSet a = engine.evaluate("A", USERS);
+        a.and(engine.evaluate("B", USERS));
+
+        assertEquals(25_000, a.cardinality(), 1_000);
+    }
+
+    @Test
+    void shouldShareBucketsWhenSaltIsShared() {
+        RolloutEngine engine = engine(Map.of(
+                "A", new RolloutProperties.Campaign(10, "shared"),
+                "B", new RolloutProperties.Campaign(30, "shared")));
+
+        BitSet a = engine.evaluate("A", USERS);
+        BitSet b = engine.evaluate("B", USERS);
+        a.andNot(b);
+
+        assertTrue(a.isEmpty(), "Widening a rollout with the same salt should keep existing users included");
+    }
+
+    @Test
+    void shouldHandleEdgePercentagesAndUnknownFeatures() {
+        RolloutEngine engine = engine(Map.of(
+                "NONE", new RolloutProperties.Campaign(0, null),
+                "ALL", new RolloutProperties.Campaign(100, null)));
+
+        assertEquals(0, engine.countInRollout("NONE", USERS));
+        assertEquals(USERS.size(), engine.countInRollout("ALL", USERS));
+        assertEquals(0, engine.countInRollout("UNKNOWN", USERS));
+        assertFalse(engine.isInRollout("UNKNOWN", "199001011234"));
+    }
+
+    @Test
+    void shouldCountExposuresPerBucket() {
+        RolloutEngine engine = engine(Map.of("A", new RolloutProperties.Campaign(20, null)));
+
+        USERS.subList(0, 1_000).forEach(user -> engine.isInRollout("A", user));
+
+        long[] exposures = engine.exposures("A");
+        assertEquals(100, exposures.length);
+        assertEquals(1_000, Arrays.stream(exposures).sum());
+        assertEquals(0, engine.exposures("UNKNOWN").length);
+    }
+
+    @Test
+    void shouldRejectPercentageOutOfRange() {
+        Map<String, RolloutProperties.Campaign> campaigns = Map.of("A", new RolloutProperties.Campaign(120, null));
+
+        assertThrows(IllegalArgumentException.class, () -> engine(campaigns));
+    }
+}
@@ -1,9 +1,16 @@
 package dev.modig.insurance.service;
 
+import dev.modig.insurance.config.RolloutProperties;
 import org.ff4j.FF4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -17,7 +24,9 @@ public class ToggleServiceTest {
     @BeforeEach
     void setUp() {
         ff4j = mock(FF4j.class);
-        toggleService = new ToggleService(ff4j);
+        RolloutProperties rollouts = new RolloutProperties(
+                Map.of("DISCOUNT_CAMPAIGN", new RolloutProperties.Campaign(20, null)));
+        toggleService = new ToggleService(ff4j, new RolloutEngine(rollouts));
     }
 
     @Test
@@ -42,7 +51,7 @@ public class ToggleServiceTest {
 
     @Test
     void shouldReturnFalseForNonToggledUserWhenFlagOff() {
-        String personalNumber = "198512309999"; // not in TOGGLED_USERS
+        String personalNumber = "198001019999"; // not in TOGGLED_USERS, bucket 4621
         when(ff4j.check("DISCOUNT_CAMPAIGN")).thenReturn(false);
 
         boolean result = toggleService.isDiscountEnabledFor(personalNumber);
@@ -52,7 +61,7 @@ public class ToggleServiceTest {
 
     @Test
     void shouldReturnFalseIfFlagEnabledButUserNotInList() {
-        String personalNumber = "198001019999"; // not in TOGGLED_USERS, hash 82
+        String personalNumber = "198001019999"; // not in TOGGLED_USERS, bucket 4621
         when(ff4j.check("DISCOUNT_CAMPAIGN")).thenReturn(true);
 
         boolean result = toggleService.isDiscountEnabledFor(personalNumber);
@@ -62,7 +71,7 @@ public class ToggleServiceTest {
 
     @Test
     void shouldReturnFalseForInvalidCanaryHash() {
-        String personalNumber = "some-user-id"; // hash = 48
+        String personalNumber = "some-user-id"; // bucket 7498
 
         boolean result = toggleService.isInCanaryGroup(personalNumber);
 
@@ -71,10 +80,24 @@ public class ToggleServiceTest {
 
     @Test
     void shouldReturnTrueForValidCanaryHash() {
-        String personalNumber = "included-user"; // hash = 12
+        String personalNumber = "user-1"; // bucket 1341
 
         boolean result = toggleService.isInCanaryGroup(personalNumber);
 
         assertTrue(result);
     }
+
+    @Test
+    void shouldEvaluateManyUsersWithoutRecordingExposure() {
+        RolloutEngine rolloutEngine = new RolloutEngine(new RolloutProperties(
+                Map.of("DISCOUNT_CAMPAIGN", new RolloutProperties.Campaign(20, null))));
+        toggleService = new ToggleService(ff4j, rolloutEngine);
+        when(ff4j.check("DISCOUNT_CAMPAIGN")).thenReturn(true);
+
+        Set<String> enabled = toggleService.enabledAmong("DISCOUNT_CAMPAIGN",
+                List.of("199001011234", "190101010023", "198001019999"));
+
+        assertEquals(Set.of("199001011234", "190101010023"), enabled);
+        assertEquals(0, Arrays.stream(rolloutEngine.exposures("DISCOUNT_CAMPAIGN")).sum());
+    }
 }
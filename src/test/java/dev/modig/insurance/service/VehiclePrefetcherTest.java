@@ -0,0 +1,99 @@
+package dev.modig.insurance.service;
+
+import dev.modig.insurance.config.VehiclePrefetchProperties;
+import dev.modig.insurance.metrics.InsuranceMetrics;
+import dev.modig.insurance.metrics.RequestTimings;
+import dev.modig.insurance.model.Vehicle;
+import dev.modig.insurance.repository.InsuranceRepository;
+import dev.modig.insurance.repository.VehicleStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class VehiclePrefetcherTest {
+
+    private static final List<String> PLATES = IntStream.range(0, 10).mapToObj(i -> "PLT" + i).toList();
+
+    private InsuranceService insuranceService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        insuranceService = mock(InsuranceService.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private VehiclePrefetcher prefetcher(int parallelism, double rate) {
+        return new VehiclePrefetcher(
+                new VehiclePrefetchProperties(true, parallelism, rate, 0.5, Duration.ofSeconds(5)),
+                new InsuranceRepository(), insuranceService, VehicleStore.disabled(),
+                new InsuranceMetrics(meterRegistry, RequestTimings.disabled()));
+    }
+
+    @Test
+    void shouldResolveEveryRegistrationNumberAndReportProgress() throws Exception {
+        when(insuranceService.prefetchVehicle(anyString())).thenAnswer(invocation ->
+                new VehicleLookup.Found(new Vehicle(invocation.getArgument(0), "Volvo", "XC90", 2020)));
+        when(insuranceService.prefetchVehicle(startsWith("PLT9"))).thenReturn(VehicleLookup.TIMEOUT);
+
+        VehiclePrefetcher.Progress progress = prefetcher(4, 1_000).prefetch(PLATES);
+        progress.finished().get();
+
+        assertEquals(10, progress.total());
+        assertEquals(9, progress.loaded());
+        assertEquals(1, progress.failed());
+        assertEquals(10, meterRegistry.get("insurance.vehicle.prefetch.planned").gauge().value());
+        assertEquals(9, meterRegistry.get("insurance.vehicle.prefetch.loaded").gauge().value());
+        assertEquals(1, meterRegistry.get("insurance.vehicle.prefetch.failed").gauge().value());
+        assertTrue(progress.awaitLoaded(0.9, Duration.ZERO));
+    }
+
+    @Test
+    void shouldGiveUpWaitingWhenFractionCannotBeReached() throws Exception {
+        when(insuranceService.prefetchVehicle(anyString())).thenReturn(VehicleLookup.SERVER_ERROR);
+
+        VehiclePrefetcher.Progress progress = prefetcher(4, 1_000).prefetch(PLATES);
+
+        assertFalse(progress.awaitLoaded(0.5, Duration.ofSeconds(5)));
+        assertEquals(0, progress.loaded());
+    }
+
+    @Test
+    void shouldBoundConcurrencyAndRate() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(insuranceService.prefetchVehicle(anyString())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return VehicleLookup.NOT_FOUND;
+        });
+
+        long start = System.nanoTime();
+        VehiclePrefetcher.Progress progress = prefetcher(2, 50).prefetch(PLATES);
+        progress.finished().get();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertEquals(10, progress.loaded());
+        assertTrue(maxInFlight.get() <= 2, "max in flight " + maxInFlight.get());
+        // Ten calls at 50 per second start over at least 180 ms
+        assertTrue(elapsed.toMillis() >= 180, "took " + elapsed);
+    }
+
+    @Test
+    void shouldSkipPrefetchWithoutVehicleStore() throws Exception {
+        prefetcher(4, 1_000).run(null);
+
+        verifyNoInteractions(insuranceService);
+    }
+}